@@ -1,5 +1,6 @@
 package com.vypnito.arena; // Změněno na com.vypnito.arena
 
+import com.vypnito.arena.arenas.ArenaData;
 import com.vypnito.arena.arenas.ArenaManager;
 import com.vypnito.arena.arenas.Arenas;
 import com.vypnito.arena.gui.GUIManager;
@@ -60,7 +61,7 @@ public class ArenaCommand implements CommandExecutor { // Již neimplementuje Ta
 
 		// Zobrazení základního použití, pokud nejsou poskytnuty žádné argumenty.
 		if (args.length == 0) {
-			player.sendMessage(Component.text("Usage: /arena <wand|create|delete|reload|edit>", NamedTextColor.YELLOW));
+			player.sendMessage(Component.text("Usage: /arena <wand|create|delete|reload|edit|capture|reset>", NamedTextColor.YELLOW));
 			return true;
 		}
 
@@ -76,6 +77,15 @@ public class ArenaCommand implements CommandExecutor { // Již neimplementuje Ta
 					return true;
 				}
 				String arenaName = args[1];
+				// Název se stává i názvem souborů, proto jen bezpečné znaky.
+				if (!ArenaData.isValidName(arenaName)) {
+					player.sendMessage(Component.text("Invalid arena name. Use 1-32 letters, digits, '_' or '-'.", NamedTextColor.RED));
+					return true;
+				}
+				if (arenaManager.isNameTaken(arenaName)) {
+					player.sendMessage(Component.text("Arena '" + arenaName + "' already exists.", NamedTextColor.RED));
+					return true;
+				}
 				// Otevře GUI pro výběr typu arény (1v1, 2v2, atd.).
 				guiManager.openArenaTypeSelectionGUI(player, arenaName);
 				break;
@@ -91,6 +101,7 @@ public class ArenaCommand implements CommandExecutor { // Již neimplementuje Ta
 				// Znovu načte konfiguraci pluginu (implementace v hlavní třídě pluginu).
 				plugin.reloadConfig(); // Tímto se znovu načte hlavní konfigurace pluginu
 				arenaManager.loadReplaceableMaterials(); // A znovu se načtou vlastní materiály
+				arenaManager.getBlockJobQueue().loadSettings(); // A limity pro postupné stavění zdí
 				player.sendMessage(Component.text("SmartArenas configuration reloaded.", NamedTextColor.GREEN));
 				break;
 			case "edit":
@@ -106,10 +117,71 @@ public class ArenaCommand implements CommandExecutor { // Již neimplementuje Ta
 				}
 				guiManager.openEditGUI(player, arenaToEdit);
 				break;
+			case "capture":
+			case "reset":
+				// Vyžaduje název arény pro uložení šablony nebo reset.
+				if (args.length < 2) {
+					player.sendMessage(Component.text("Usage: /arena " + args[0].toLowerCase() + " <name>", NamedTextColor.YELLOW));
+					player.sendMessage(Component.text("Templates hold blocks only; chest contents, sign text and other block entity data are not captured.", NamedTextColor.GRAY));
+					return true;
+				}
+				Arenas templateArena = arenaManager.getArena(args[1]);
+				if (templateArena == null) {
+					player.sendMessage(Component.text("Arena '" + args[1] + "' not found.", NamedTextColor.RED));
+					return true;
+				}
+				// Se stojící zdí by se do šablony dostala zeď, nebo by ji reset přepsal.
+				if (templateArena.isWallActive()) {
+					player.sendMessage(Component.text("Arena '" + args[1] + "' is in use, try again once its wall is removed.", NamedTextColor.RED));
+					return true;
+				}
+				// Během obnovy by šablona zachytila napůl obnovenou arénu.
+				if (templateArena.isResetting()) {
+					player.sendMessage(Component.text("Arena '" + args[1] + "' is being reset, try again once the reset is done.", NamedTextColor.RED));
+					return true;
+				}
+				if (args[0].equalsIgnoreCase("capture")) {
+					captureTemplate(player, templateArena);
+				} else {
+					resetArena(player, templateArena);
+				}
+				break;
 			default:
-				player.sendMessage(Component.text("Unknown subcommand. Usage: /arena <wand|create|delete|reload|edit>", NamedTextColor.YELLOW));
+				player.sendMessage(Component.text("Unknown subcommand. Usage: /arena <wand|create|delete|reload|edit|capture|reset>", NamedTextColor.YELLOW));
 				break;
 		}
 		return true;
 	}
+
+	/**
+	 * Uloží šablonu arény a oznámí výsledek hráči.
+	 * @param player Hráč, který příkaz zadal.
+	 * @param arena Aréna, jejíž šablona se ukládá.
+	 */
+	private void captureTemplate(Player player, Arenas arena) {
+		player.sendMessage(Component.text("Capturing arena '" + arena.getName() + "' (block entity data such as chest contents is not captured)...", NamedTextColor.GRAY));
+		arenaManager.captureTemplate(arena).whenComplete((blocks, error) -> {
+			if (error != null) {
+				player.sendMessage(Component.text("Capturing arena '" + arena.getName() + "' failed: " + error.getMessage(), NamedTextColor.RED));
+				return;
+			}
+			player.sendMessage(Component.text("Arena '" + arena.getName() + "' captured (" + blocks + " blocks).", NamedTextColor.GREEN));
+		});
+	}
+
+	/**
+	 * Obnoví arénu ze šablony a oznámí výsledek hráči.
+	 * @param player Hráč, který příkaz zadal.
+	 * @param arena Aréna, která se obnovuje.
+	 */
+	private void resetArena(Player player, Arenas arena) {
+		player.sendMessage(Component.text("Resetting arena '" + arena.getName() + "'...", NamedTextColor.GRAY));
+		arenaManager.resetArena(arena).whenComplete((changed, error) -> {
+			if (error != null) {
+				player.sendMessage(Component.text("Resetting arena '" + arena.getName() + "' failed: " + error.getMessage(), NamedTextColor.RED));
+				return;
+			}
+			player.sendMessage(Component.text("Arena '" + arena.getName() + "' reset (" + changed + " blocks changed).", NamedTextColor.GREEN));
+		});
+	}
 }
\ No newline at end of file
@@ -20,9 +20,9 @@ public class ArenaTabCompleter implements TabCompleter {
 	private final ArenaManager arenaManager; // Reference na správce arén, potřebujeme pro názvy arén
 
 	// Seznam všech dostupných subpříkazů.
-	private static final List<String> SUBCOMMANDS_ALL = Arrays.asList("wand", "create", "delete", "reload", "edit");
+	private static final List<String> SUBCOMMANDS_ALL = Arrays.asList("wand", "create", "delete", "reload", "edit", "capture", "reset");
 	// Seznam subpříkazů, které očekávají název arény jako druhý argument.
-	private static final List<String> SUBCOMMANDS_WITH_NAME_ARG = Arrays.asList("delete", "edit");
+	private static final List<String> SUBCOMMANDS_WITH_NAME_ARG = Arrays.asList("delete", "edit", "capture", "reset");
 
 
 	/**
@@ -0,0 +1,153 @@
+package com.vypnito.arena;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+/**
+ * Schedules the plugin's tasks on the thread that owns the data they touch.
+ * On Folia, block work runs on the region scheduler owning the chunk, player work on the player's
+ * entity scheduler and plugin-wide timers on the global region scheduler. On Paper every one of these
+ * runs on the main server thread through the Bukkit scheduler, exactly as before.
+ * The plugin does not declare {@code folia-supported} yet: listeners still read and change shared arena state
+ * (registry, membership, timers, saved effects) from whichever region fires the event, and a block job is applied
+ * by the single region owning its anchor chunk even when the arena spans several regions.
+ */
+public class TaskScheduler {
+
+	private static final boolean FOLIA = detectFolia();
+
+	private final arena plugin;
+
+	/**
+	 * A scheduled task that can be cancelled, whichever scheduler runs it.
+	 */
+	@FunctionalInterface
+	public interface Task {
+		/**
+		 * Cancels the task. Does nothing if it already finished or was cancelled.
+		 */
+		void cancel();
+	}
+
+	/**
+	 * Constructor for TaskScheduler.
+	 * @param plugin The main plugin instance.
+	 */
+	public TaskScheduler(arena plugin) {
+		this.plugin = plugin;
+	}
+
+	/**
+	 * @return True if the server runs Folia's region threading.
+	 */
+	public static boolean isFolia() {
+		return FOLIA;
+	}
+
+	/**
+	 * Runs a task on the next tick of the global region (the main thread on Paper).
+	 * @param task The task to run.
+	 */
+	public void runGlobal(Runnable task) {
+		if (FOLIA) {
+			Bukkit.getGlobalRegionScheduler().execute(plugin, task);
+		} else {
+			Bukkit.getScheduler().runTask(plugin, task);
+		}
+	}
+
+	/**
+	 * Runs a task on the global region after a delay (the main thread on Paper).
+	 * @param task The task to run.
+	 * @param delayTicks The delay in ticks (at least 1).
+	 */
+	public void runGlobalLater(Runnable task, long delayTicks) {
+		if (FOLIA) {
+			Bukkit.getGlobalRegionScheduler().runDelayed(plugin, t -> task.run(), Math.max(1L, delayTicks));
+		} else {
+			Bukkit.getScheduler().runTaskLater(plugin, task, delayTicks);
+		}
+	}
+
+	/**
+	 * Runs a repeating task on the global region (the main thread on Paper).
+	 * @param task The task to run.
+	 * @param delayTicks The delay before the first run, in ticks (at least 1).
+	 * @param periodTicks The period between runs, in ticks (at least 1).
+	 * @return The scheduled task.
+	 */
+	public Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+		if (FOLIA) {
+			return Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, t -> task.run(), Math.max(1L, delayTicks), Math.max(1L, periodTicks))::cancel;
+		}
+		return Bukkit.getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks)::cancel;
+	}
+
+	/**
+	 * Runs a task on the next tick of the region owning a chunk (the main thread on Paper).
+	 * @param world The world of the chunk.
+	 * @param chunkX The chunk X coordinate.
+	 * @param chunkZ The chunk Z coordinate.
+	 * @param task The task to run.
+	 */
+	public void runAtChunk(World world, int chunkX, int chunkZ, Runnable task) {
+		if (FOLIA) {
+			Bukkit.getRegionScheduler().execute(plugin, world, chunkX, chunkZ, task);
+		} else {
+			Bukkit.getScheduler().runTask(plugin, task);
+		}
+	}
+
+	/**
+	 * Runs a repeating task on the region owning a chunk (the main thread on Paper).
+	 * @param world The world of the chunk.
+	 * @param chunkX The chunk X coordinate.
+	 * @param chunkZ The chunk Z coordinate.
+	 * @param task The task to run.
+	 * @param delayTicks The delay before the first run, in ticks (at least 1).
+	 * @param periodTicks The period between runs, in ticks (at least 1).
+	 * @return The scheduled task.
+	 */
+	public Task runAtChunkTimer(World world, int chunkX, int chunkZ, Runnable task, long delayTicks, long periodTicks) {
+		if (FOLIA) {
+			return Bukkit.getRegionScheduler().runAtFixedRate(plugin, world, chunkX, chunkZ, t -> task.run(), Math.max(1L, delayTicks), Math.max(1L, periodTicks))::cancel;
+		}
+		return Bukkit.getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks)::cancel;
+	}
+
+	/**
+	 * Runs a task on the next tick of the thread owning an entity, e.g. a player (the main thread on Paper).
+	 * The task is dropped if the entity is removed before it runs.
+	 * @param entity The entity the task works with.
+	 * @param task The task to run.
+	 */
+	public void runForEntity(Entity entity, Runnable task) {
+		if (FOLIA) {
+			entity.getScheduler().run(plugin, t -> task.run(), null);
+		} else {
+			Bukkit.getScheduler().runTask(plugin, task);
+		}
+	}
+
+	/**
+	 * Runs a task off the server threads.
+	 * @param task The task to run.
+	 */
+	public void runAsync(Runnable task) {
+		if (FOLIA) {
+			Bukkit.getAsyncScheduler().runNow(plugin, t -> task.run());
+		} else {
+			Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+		}
+	}
+
+	private static boolean detectFolia() {
+		try {
+			Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+}
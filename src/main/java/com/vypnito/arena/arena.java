@@ -10,6 +10,7 @@ import com.vypnito.arena.player.PlayerChatListener;
 import com.vypnito.arena.player.SelectionManager;
 import com.vypnito.arena.game.GameListener;
 import com.vypnito.arena.game.GameManager;
+import com.vypnito.arena.game.RollbackListener;
 // Nový import pro WandListener
 import com.vypnito.arena.player.WandListener;
 
@@ -23,6 +24,7 @@ import org.bukkit.Bukkit;
  */
 public final class arena extends JavaPlugin {
 
+	private TaskScheduler taskScheduler;
 	private ArenaManager arenaManager;
 	private SelectionManager selectionManager;
 	private PlayerManager playerManager;
@@ -34,6 +36,8 @@ public final class arena extends JavaPlugin {
 		this.saveDefaultConfig();
 		this.reloadConfig();
 
+		// Plánovač musí existovat dřív než manažery, které si přes něj plánují úlohy
+		taskScheduler = new TaskScheduler(this);
 		arenaManager = new ArenaManager(this);
 		// --- ZMĚNA ZDE: SelectionManager nyní potřebuje instanci pluginu pro NamespacedKey ---
 		selectionManager = new SelectionManager(this);
@@ -44,8 +48,12 @@ public final class arena extends JavaPlugin {
 
 		// Registrace event listenerů
 		Bukkit.getPluginManager().registerEvents(guiManager, this);
-		Bukkit.getPluginManager().registerEvents(new PlayerChatListener(this, playerManager, arenaManager, guiManager), this);
+		// Chat listener se registruje sám, jen když některý hráč čeká na zadání do chatu
+		PlayerChatListener chatListener = new PlayerChatListener(this, playerManager, arenaManager, guiManager);
+		playerManager.setStateListener(chatListener::updateRegistration);
 		Bukkit.getPluginManager().registerEvents(new GameListener(gameManager), this);
+		Bukkit.getPluginManager().registerEvents(gameManager.getVirtualWallManager(), this);
+		Bukkit.getPluginManager().registerEvents(new RollbackListener(arenaManager), this);
 		// --- NOVÁ REGISTRACE: Registrace WandListeneru ---
 		Bukkit.getPluginManager().registerEvents(new WandListener(selectionManager), this);
 		// --- KONEC NOVÉ REGISTRACE ---
@@ -59,9 +67,20 @@ public final class arena extends JavaPlugin {
 
 	@Override
 	public void onDisable() {
+		// Dokončí rozpracované stavby/obnovy zdí, aby nic nezůstalo napůl
+		if (arenaManager != null) {
+			arenaManager.getBlockJobQueue().flush();
+			arenaManager.flushSaves(); // Zapíše poslední změny arén, které ještě čekají na uložení
+			arenaManager.closeWallJournals();
+			arenaManager.saveWallTemplates();
+		}
 		getLogger().info("SmartArenas has been disabled!");
 	}
 
+	public TaskScheduler getTaskScheduler() {
+		return taskScheduler;
+	}
+
 	public ArenaManager getArenaManager() {
 		return arenaManager;
 	}
@@ -0,0 +1,111 @@
+package com.vypnito.arena.arenas;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable, storage-independent copy of everything persisted about an arena.
+ * Worlds are referenced by name, so data can be read, copied and written on any thread
+ * and kept for arenas whose world is not loaded.
+ */
+public record ArenaData(String name, StoredLocation pos1, StoredLocation pos2, String wallMaterial,
+						boolean allowBlockBreak, boolean allowBlockPlace, boolean allowItemDrop, boolean disableHunger,
+						boolean virtualWall, int wallRemovalDelay, List<String> effects, int requiredPlayers) {
+
+	// Names become file names (arena files, wall journals, wall and arena templates), so they are kept portable
+	private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,32}");
+
+	public ArenaData {
+		if (!isValidName(name)) {
+			throw new IllegalArgumentException("invalid arena name '" + name + "', only letters, digits, '_' and '-' are allowed (at most 32)");
+		}
+		effects = List.copyOf(effects);
+	}
+
+	/**
+	 * Checks whether a name can be used for an arena: 1 to 32 letters, digits, '_' or '-'.
+	 * Arenas whose names differ only in case are not allowed either, see {@link #nameKey(String)}.
+	 * @param name The name to check, may be null.
+	 * @return True if the name is valid.
+	 */
+	public static boolean isValidName(String name) {
+		return name != null && NAME_PATTERN.matcher(name).matches();
+	}
+
+	/**
+	 * Gets the key two arena names collide on. Case-insensitive file systems would map
+	 * names differing only in case to the same files.
+	 * @param name The arena name.
+	 * @return The name in lower case.
+	 */
+	public static String nameKey(String name) {
+		return name.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * A position with its world referenced by name.
+	 */
+	public record StoredLocation(String world, double x, double y, double z, float yaw, float pitch) {
+
+		/**
+		 * @param location The location to store, may be null.
+		 * @return The stored location, or null if the location or its world is missing.
+		 */
+		public static StoredLocation of(Location location) {
+			if (location == null || location.getWorld() == null) return null;
+			return new StoredLocation(location.getWorld().getName(), location.getX(), location.getY(), location.getZ(),
+					location.getYaw(), location.getPitch());
+		}
+
+		/**
+		 * Resolves the location. Must be called on the main server thread.
+		 * @return The location.
+		 * @throws IllegalArgumentException If the world is not loaded.
+		 */
+		public Location toLocation() {
+			World resolved = Bukkit.getWorld(world);
+			if (resolved == null) {
+				throw new IllegalArgumentException("unknown world '" + world + "'");
+			}
+			return new Location(resolved, x, y, z, yaw, pitch);
+		}
+	}
+
+	/**
+	 * Copies the persisted state of an arena.
+	 * @param arena The arena.
+	 * @return The arena data.
+	 */
+	public static ArenaData of(Arenas arena) {
+		ArenaSettings settings = arena.getSettings();
+		return new ArenaData(arena.getName(), StoredLocation.of(arena.getPos1()), StoredLocation.of(arena.getPos2()),
+				settings.getWallMaterial().name(), settings.isAllowBlockBreak(), settings.isAllowBlockPlace(),
+				settings.isAllowItemDrop(), settings.isDisableHunger(), settings.isVirtualWall(),
+				settings.getWallRemovalDelay(), settings.getEffects(), settings.getRequiredPlayers());
+	}
+
+	/**
+	 * Creates the settings described by this data.
+	 * @return New arena settings.
+	 * @throws IllegalArgumentException If the wall material is unknown.
+	 */
+	public ArenaSettings toSettings() {
+		ArenaSettings settings = new ArenaSettings();
+		settings.setWallMaterial(Material.valueOf(wallMaterial));
+		settings.setAllowBlockBreak(allowBlockBreak);
+		settings.setAllowBlockPlace(allowBlockPlace);
+		settings.setAllowItemDrop(allowItemDrop);
+		settings.setDisableHunger(disableHunger);
+		settings.setVirtualWall(virtualWall);
+		settings.setWallRemovalDelay(wallRemovalDelay);
+		settings.setEffects(effects);
+		settings.setRequiredPlayers(requiredPlayers);
+		return settings;
+	}
+}
@@ -0,0 +1,144 @@
+package com.vypnito.arena.arenas;
+
+import com.vypnito.arena.arena;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Watches the arena store for changes made outside the plugin (e.g. by deploy tooling).
+ * Events are debounced until the files have been quiet for {@code arena-settings.watch-debounce-ms},
+ * then the store is loaded on the watcher thread and only the result is handed to the main thread.
+ * Our own saves are seen too; they load the data the plugin already has, so applying them changes nothing.
+ */
+public class ArenaFileWatcher {
+
+	private final arena plugin;
+	private final ArenaStore store;
+	private final ArenaSaver saver;
+	private final Consumer<ArenaStore.LoadResult> applier; // Called on the main thread
+	private final Path location;
+	private long debounceMillis;
+	private WatchService watchService;
+	private Thread thread;
+	private volatile boolean running = false;
+
+	/**
+	 * Constructor for ArenaFileWatcher.
+	 * @param plugin The main plugin instance.
+	 * @param store The store to watch.
+	 * @param saver The saver writing to the store, so results racing with our own writes can be dropped.
+	 * @param applier Applies the loaded arenas; called on the main thread.
+	 */
+	public ArenaFileWatcher(arena plugin, ArenaStore store, ArenaSaver saver, Consumer<ArenaStore.LoadResult> applier) {
+		this.plugin = plugin;
+		this.store = store;
+		this.saver = saver;
+		this.applier = applier;
+		this.location = store.getLocation().toPath().toAbsolutePath();
+	}
+
+	/**
+	 * Starts watching. The parent folder is always watched, so a store folder created later is picked up.
+	 */
+	public void start() {
+		debounceMillis = Math.max(50L, plugin.getConfig().getLong("arena-settings.watch-debounce-ms", 500L));
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+			register(location.getParent());
+			if (Files.isDirectory(location)) {
+				register(location);
+			}
+		} catch (IOException e) {
+			plugin.getLogger().log(Level.WARNING, "Could not watch " + store.describe() + " for changes: " + e.getMessage(), e);
+			return;
+		}
+		running = true;
+		thread = new Thread(this::run, "SmartArenas-Watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops watching. Changes loaded but not yet applied are dropped.
+	 */
+	public void stop() {
+		if (!running) return;
+		running = false;
+		try {
+			watchService.close(); // Wakes the watcher thread up
+		} catch (IOException e) {
+			plugin.getLogger().log(Level.WARNING, "Error closing the arena file watcher: " + e.getMessage(), e);
+		}
+	}
+
+	private void register(Path folder) throws IOException {
+		folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+	}
+
+	private void run() {
+		boolean dirty = false; // A relevant change is waiting for the files to become quiet
+		try {
+			while (running) {
+				WatchKey key = dirty ? watchService.poll(debounceMillis, TimeUnit.MILLISECONDS) : watchService.take();
+				if (key == null) {
+					dirty = false;
+					reload();
+					continue;
+				}
+				Path folder = (Path) key.watchable();
+				for (WatchEvent<?> event : key.pollEvents()) {
+					dirty |= isRelevant(folder, event);
+				}
+				key.reset();
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// Stopped
+		}
+	}
+
+	private boolean isRelevant(Path folder, WatchEvent<?> event) {
+		if (event.kind() == StandardWatchEventKinds.OVERFLOW) return true;
+		Path changed = folder.resolve((Path) event.context());
+		if (changed.equals(location)) {
+			if (Files.isDirectory(location)) {
+				try {
+					register(location); // The store folder was (re)created
+				} catch (IOException e) {
+					plugin.getLogger().log(Level.WARNING, "Could not watch " + store.describe() + " for changes: " + e.getMessage(), e);
+				}
+			}
+			return true;
+		}
+		// Files inside a store folder, except the temp files of atomic writes
+		return folder.equals(location) && !changed.getFileName().toString().endsWith(".tmp");
+	}
+
+	private void reload() {
+		// A write finishing after this point may or may not be in what we load, see the check below
+		long writes = saver.getCompletedWrites();
+		ArenaStore.LoadResult loaded;
+		try {
+			loaded = store.load();
+		} catch (IOException e) {
+			plugin.getLogger().log(Level.WARNING, "Ignoring changed " + store.describe() + ", it cannot be read: " + e.getMessage(), e);
+			return;
+		}
+		if (!running || !plugin.isEnabled()) return;
+		plugin.getTaskScheduler().runGlobal(() -> {
+			// Our own write finished meanwhile; its file event triggers another reload with the current data
+			if (!running || saver.getCompletedWrites() != writes) return;
+			applier.accept(loaded);
+		});
+	}
+}
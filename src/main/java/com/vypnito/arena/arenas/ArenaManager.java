@@ -1,37 +1,103 @@
 package com.vypnito.arena.arenas;
 
+import com.vypnito.arena.TaskScheduler;
 import com.vypnito.arena.arena;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
-import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
 public class ArenaManager {
 
 	private final arena plugin; // Reference na hlavní instanci pluginu
-	private final Map<String, Arenas> arenas = new HashMap<>(); // Mapa pro uchovávání všech arén podle názvu
-	private File arenasFile; // Soubor pro ukládání dat arén
-	private FileConfiguration arenasConfig; // Konfigurace pro přístup k datům v souboru
+	private final AtomicReference<ArenaRegistry> registry = new AtomicReference<>(ArenaRegistry.EMPTY); // Neměnný snímek všech arén, čitelný z libovolného vlákna
+	private ArenaStore store; // Úložiště definic arén (YAML nebo binární soubor)
+	private boolean storeReadable = true; // False, pokud se úložiště nepodařilo načíst; změny se pak nezapisují
+	private final Map<String, ArenaData> persisted = new LinkedHashMap<>(); // Uložená data všech arén, i těch s nenačteným světem
+	private final Set<String> unreadableNames = new HashSet<>(); // Uložené arény, které nejdou přečíst; jejich jména jsou blokovaná
+	private File journalFolder; // Složka s žurnály původních bloků aktivních zdí
+	private File wallTemplateFolder; // Složka s uloženou geometrií zdí
+	private File arenaTemplateFolder; // Složka s binárními šablonami arén pro úplný reset
+	private final ArenaSpatialIndex spatialIndex = new ArenaSpatialIndex(); // Chunk index pro rychlé hledání arény podle lokace
+	private final ParkedChunkIndex parkedIndex = new ParkedChunkIndex(); // Chunky, na jejichž načtení čekají odložené obnovy
+	private final ArenaMembershipTracker membershipTracker = new ArenaMembershipTracker(spatialIndex); // Aktuální aréna každého hráče
+	private final BlockJobQueue blockJobQueue; // Postupné (per-tick) stavění a obnova zdí
+	private final WallPlanner wallPlanner; // Asynchronní příprava zdí ze snapshotů chunků
+	private final ArenaSaver saver; // Odložené, sloučené ukládání arenas.yml mimo hlavní vlákno
+	private final ArenaFileWatcher fileWatcher; // Sleduje změny úložiště provedené mimo plugin
+	private final Map<String, ArenaData> deferredChanges = new HashMap<>(); // Vnější změny uzavřených arén; null = smazání
+	private TaskScheduler.Task deferredTask; // Čeká, až se uzavřené arény otevřou
+	private Consumer<Arenas> unregisterListener; // Herní logika uklidí zeď a časovače odebírané arény
 
 	private static Set<Material> replaceableWallMaterials = new HashSet<>();
 
 	public ArenaManager(arena plugin) {
 		this.plugin = plugin;
+		this.blockJobQueue = new BlockJobQueue(plugin);
+		this.wallPlanner = new WallPlanner(plugin);
 		setupFiles();
+		this.saver = new ArenaSaver(plugin, store, this::snapshotArenas);
+		replayWallJournals();
 		loadArenas();
 		loadReplaceableMaterials();
+		this.fileWatcher = new ArenaFileWatcher(plugin, store, saver, this::applyStoredChanges);
+		if (plugin.getConfig().getBoolean("arena-settings.watch-arena-files", true)) {
+			fileWatcher.start();
+		}
+	}
+
+	/**
+	 * Sets a callback run on the main thread right before an arena is unregistered (deleted, removed from the store
+	 * or unbound from an unloading world), e.g. to take down its virtual wall and cancel its timers.
+	 * @param unregisterListener The callback.
+	 */
+	public void setUnregisterListener(Consumer<Arenas> unregisterListener) {
+		this.unregisterListener = unregisterListener;
+	}
+
+	/**
+	 * Gets the tracker holding the current arena of every player.
+	 * @return The membership tracker.
+	 */
+	public ArenaMembershipTracker getMembershipTracker() {
+		return membershipTracker;
+	}
+
+	/**
+	 * Gets the queue that applies wall builds and restores under a per-tick budget.
+	 * @return The block job queue.
+	 */
+	public BlockJobQueue getBlockJobQueue() {
+		return blockJobQueue;
+	}
+
+	/**
+	 * Gets the planner that prepares wall change lists off the main thread.
+	 * @return The wall planner.
+	 */
+	public WallPlanner getWallPlanner() {
+		return wallPlanner;
 	}
 
 	public static Set<Material> getReplaceableWallMaterials() {
@@ -56,77 +122,432 @@ public class ArenaManager {
 		if (!plugin.getDataFolder().exists()) {
 			plugin.getDataFolder().mkdir();
 		}
-		arenasFile = new File(plugin.getDataFolder(), "arenas.yml");
-		if (!arenasFile.exists()) {
+		store = openStore();
+		journalFolder = new File(plugin.getDataFolder(), "journal");
+		wallTemplateFolder = new File(plugin.getDataFolder(), "walls");
+		arenaTemplateFolder = new File(plugin.getDataFolder(), "templates");
+	}
+
+	/**
+	 * Opens the arena store selected by {@code arena-settings.storage}.
+	 * When switching to the binary or sharded store, existing arenas are migrated from arenas.yml once.
+	 */
+	private ArenaStore openStore() {
+		File yamlFile = new File(plugin.getDataFolder(), "arenas.yml");
+		YamlArenaStore yamlStore = new YamlArenaStore(yamlFile, plugin.getLogger());
+		String storage = plugin.getConfig().getString("arena-settings.storage", "yaml").toLowerCase();
+		ArenaStore target = switch (storage) {
+			case "binary" -> new BinaryArenaStore(new File(plugin.getDataFolder(), "arenas.bin"));
+			case "sharded" -> new ShardedArenaStore(new File(plugin.getDataFolder(), "arenas"), plugin.getLogger());
+			default -> yamlStore;
+		};
+		if (target != yamlStore && !target.exists() && yamlFile.exists()) {
 			try {
-				arenasFile.createNewFile();
-				plugin.getLogger().info("Arena configuration file arenas.yml created.");
+				ArenaStore.LoadResult loaded = yamlStore.load();
+				if (!loaded.failedNames().isEmpty()) {
+					// Migrating would drop them, so stay on YAML until they are fixed
+					plugin.getLogger().severe("Not migrating arenas.yml to " + target.describe() + ", arenas " + loaded.failedNames()
+							+ " cannot be read. Keeping the YAML storage until they are fixed.");
+					return yamlStore;
+				}
+				List<ArenaData> migrated = loaded.arenas();
+				Set<String> names = new HashSet<>();
+				migrated.forEach(data -> names.add(data.name()));
+				target.write(migrated, names);
+				yamlFile.renameTo(new File(plugin.getDataFolder(), "arenas.yml.migrated"));
+				plugin.getLogger().info("Migrated " + migrated.size() + " arenas from arenas.yml to " + target.describe() + ".");
 			} catch (IOException e) {
-				plugin.getLogger().log(Level.SEVERE, "Error creating arenas.yml file: " + e.getMessage(), e);
+				plugin.getLogger().log(Level.SEVERE, "Error migrating arenas.yml, keeping the YAML storage: " + e.getMessage(), e);
+				return yamlStore;
 			}
 		}
-		arenasConfig = YamlConfiguration.loadConfiguration(arenasFile);
+		return target;
 	}
 
-	private void loadArenas() {
-		if (arenasConfig.contains("arenas")) {
-			ConfigurationSection arenasSection = arenasConfig.getConfigurationSection("arenas");
-			if (arenasSection != null) {
-				for (String arenaName : arenasSection.getKeys(false)) {
-					try {
-						Location pos1 = (Location) arenasSection.get(arenaName + ".pos1");
-						Location pos2 = (Location) arenasSection.get(arenaName + ".pos2");
-
-						ConfigurationSection settingsSection = arenasSection.getConfigurationSection(arenaName + ".settings");
-						ArenaSettings settings = new ArenaSettings();
-
-						if (settingsSection != null) {
-							settings.setWallMaterial(Material.valueOf(settingsSection.getString("wall-material", "GLASS")));
-							settings.setAllowBlockBreak(settingsSection.getBoolean("allow-block-break", false));
-							settings.setAllowBlockPlace(settingsSection.getBoolean("allow-block-place", false));
-							settings.setAllowItemDrop(settingsSection.getBoolean("allow-item-drop", false));
-							settings.setDisableHunger(settingsSection.getBoolean("disable-hunger", true));
-							settings.setWallRemovalDelay(settingsSection.getInt("wall-removal-delay-seconds", 30));
-							settings.getEffects().clear();
-							settings.getEffects().addAll(settingsSection.getStringList("effects"));
-							// NEW: Load requiredPlayers
-							settings.setRequiredPlayers(settingsSection.getInt("required-players", 2));
-						}
-
-						Arenas arena = new Arenas(arenaName, pos1, pos2, settings);
-						arenas.put(arenaName, arena);
-						plugin.getLogger().info("Arena '" + arenaName + "' loaded successfully.");
-					} catch (Exception e) {
-						plugin.getLogger().log(Level.WARNING, "Error loading arena '" + arenaName + "': " + e.getMessage(), e);
-					}
+	private boolean isPersistWallTemplates() {
+		return plugin.getConfig().getBoolean("arena-settings.persist-wall-templates", true);
+	}
+
+	private void loadWallTemplate(Arenas arena) {
+		File file = new File(wallTemplateFolder, arena.getName() + ".wall");
+		if (!isPersistWallTemplates() || arena.getRegion() == null || !file.exists()) return;
+		try {
+			arena.setWallTemplate(WallTemplate.load(file, arena.getRegion()));
+		} catch (IOException e) {
+			plugin.getLogger().log(Level.WARNING, "Error loading wall template of arena '" + arena.getName() + "': " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Saves the computed wall templates, so walls need no geometry work after a restart.
+	 * Templates of arenas whose positions changed since the last save are removed.
+	 */
+	public void saveWallTemplates() {
+		if (!isPersistWallTemplates()) return;
+		for (Arenas arena : registry.get().getArenas()) {
+			saveWallTemplate(arena);
+		}
+	}
+
+	private void saveWallTemplate(Arenas arena) {
+		if (!wallTemplateFolder.exists()) {
+			wallTemplateFolder.mkdirs();
+		}
+		File file = new File(wallTemplateFolder, arena.getName() + ".wall");
+		WallTemplate template = arena.getCachedWallTemplate();
+		if (template == null) {
+			file.delete();
+			return;
+		}
+		try {
+			template.save(file);
+		} catch (IOException e) {
+			plugin.getLogger().log(Level.WARNING, "Error saving wall template of arena '" + arena.getName() + "': " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Restores walls left in the world by a crash or an unclean shutdown, using the wall journals.
+	 * Journals whose world is not loaded are kept as pending journals and retried when a world loads.
+	 */
+	private void replayWallJournals() {
+		replayWallJournals(journalFolder.listFiles((dir, fileName) -> fileName.endsWith(".wj")));
+	}
+
+	/**
+	 * Retries the pending journals, e.g. after their world has been loaded. Journals of bound arenas are never touched.
+	 */
+	private void replayPendingJournals() {
+		replayWallJournals(journalFolder.listFiles((dir, fileName) -> fileName.startsWith("pending-") && fileName.endsWith(".wj")));
+	}
+
+	private void replayWallJournals(File[] files) {
+		if (files == null) return;
+		for (File file : files) {
+			int restored = WallJournal.replay(file, plugin.getLogger());
+			if (restored < 0) {
+				File pending = new File(journalFolder, "pending-" + System.currentTimeMillis() + "-" + file.getName());
+				if (!file.getName().startsWith("pending-") && file.renameTo(pending)) {
+					plugin.getLogger().warning("Could not replay wall journal " + file.getName() + " yet, kept as " + pending.getName() + ".");
 				}
+				continue;
+			}
+			if (restored > 0) {
+				plugin.getLogger().info("Restored " + restored + " wall blocks from journal " + file.getName() + ".");
+			}
+			if (!file.delete()) {
+				plugin.getLogger().warning("Could not delete replayed wall journal " + file.getName() + ".");
 			}
 		}
 	}
 
-	public void saveArena(Arenas arena) {
-		arenasConfig.set("arenas." + arena.getName() + ".pos1", arena.getPos1());
-		arenasConfig.set("arenas." + arena.getName() + ".pos2", arena.getPos2());
-
-		ConfigurationSection settingsSection = arenasConfig.createSection("arenas." + arena.getName() + ".settings");
-		settingsSection.set("wall-material", arena.getSettings().getWallMaterial().name());
-		settingsSection.set("allow-block-break", arena.getSettings().isAllowBlockBreak());
-		settingsSection.set("allow-block-place", arena.getSettings().isAllowBlockPlace());
-		settingsSection.set("allow-item-drop", arena.getSettings().isAllowItemDrop());
-		settingsSection.set("disable-hunger", arena.getSettings().isDisableHunger());
-		settingsSection.set("wall-removal-delay-seconds", arena.getSettings().getWallRemovalDelay());
-		settingsSection.set("effects", arena.getSettings().getEffects());
-		// NEW: Save requiredPlayers
-		settingsSection.set("required-players", arena.getSettings().getRequiredPlayers());
+	/**
+	 * Keeps a closed journal that still holds wall blocks as a pending journal, replayed once its world is loaded.
+	 */
+	private void parkWallJournal(String arenaName) {
+		File file = new File(journalFolder, arenaName + ".wj");
+		if (file.exists() && !file.renameTo(new File(journalFolder, "pending-" + System.currentTimeMillis() + "-" + file.getName()))) {
+			plugin.getLogger().warning("Could not keep wall journal " + file.getName() + " for its world's next load.");
+		}
+	}
+
+	private WallJournal createWallJournal(String arenaName) {
+		return new WallJournal(new File(journalFolder, arenaName + ".wj"), plugin.getLogger());
+	}
+
+	/**
+	 * Closes the wall journals of all arenas. Journals of walls still standing are kept for the next startup.
+	 */
+	public void closeWallJournals() {
+		for (Arenas arena : registry.get().getArenas()) {
+			if (arena.getWallJournal() != null) {
+				arena.getWallJournal().close();
+			}
+		}
+	}
 
+	private void loadArenas() {
+		List<ArenaData> stored;
 		try {
-			arenasConfig.save(arenasFile);
-			plugin.getLogger().info("Arena '" + arena.getName() + "' saved successfully.");
+			ArenaStore.LoadResult result = store.load();
+			stored = result.arenas();
+			unreadableNames.addAll(result.failedNames());
 		} catch (IOException e) {
-			plugin.getLogger().log(Level.SEVERE, "Error saving arena '" + arena.getName() + "': " + e.getMessage(), e);
+			// Nothing is written back, so the unreadable data is not overwritten
+			storeReadable = false;
+			plugin.getLogger().log(Level.SEVERE, "Error loading arenas from " + store.describe() + ", arena changes will not be saved: " + e.getMessage(), e);
+			return;
+		}
+		List<Arenas> loaded = new ArrayList<>();
+		for (ArenaData data : stored) {
+			String arenaName = data.name();
+			persisted.put(arenaName, data); // Kept and saved even if the arena cannot be registered now
+			if (!isWorldLoaded(data)) {
+				plugin.getLogger().info("Arena '" + arenaName + "' will be loaded once its world is loaded.");
+				continue;
+			}
+			Arenas arena = bind(data);
+			if (arena != null) {
+				loaded.add(arena);
+				plugin.getLogger().info("Arena '" + arenaName + "' loaded successfully.");
+			}
+		}
+		registry.updateAndGet(current -> current.withAll(loaded)); // Published in one step
+	}
+
+	/**
+	 * Checks whether the worlds of both stored positions are loaded.
+	 */
+	private static boolean isWorldLoaded(ArenaData data) {
+		return (data.pos1() == null || Bukkit.getWorld(data.pos1().world()) != null)
+				&& (data.pos2() == null || Bukkit.getWorld(data.pos2().world()) != null);
+	}
+
+	private static boolean usesWorld(ArenaData data, String worldName) {
+		return (data.pos1() != null && data.pos1().world().equals(worldName))
+				|| (data.pos2() != null && data.pos2().world().equals(worldName));
+	}
+
+	/**
+	 * Creates the arena described by stored data and adds it to the spatial index. The caller publishes it in the registry.
+	 * @return The arena, or null if the data is invalid.
+	 */
+	private Arenas bind(ArenaData data) {
+		try {
+			Location pos1 = data.pos1() == null ? null : data.pos1().toLocation();
+			Location pos2 = data.pos2() == null ? null : data.pos2().toLocation();
+			Arenas arena = new Arenas(data.name(), pos1, pos2, data.toSettings());
+			warnInvalidEffects(arena);
+			arena.setWallJournal(createWallJournal(data.name()));
+			arena.setParkedChunkIndex(parkedIndex);
+			loadWallTemplate(arena);
+			spatialIndex.add(arena);
+			return arena;
+		} catch (Exception e) {
+			plugin.getLogger().log(Level.WARNING, "Error loading arena '" + data.name() + "': " + e.getMessage(), e);
+			return null;
+		}
+	}
+
+	private void warnInvalidEffects(Arenas arena) {
+		for (String effect : arena.getSettings().getInvalidEffects()) {
+			plugin.getLogger().warning("Ignoring invalid effect '" + effect + "' of arena '" + arena.getName() + "'. Check format (e.g., 'SPEED:1').");
+		}
+	}
+
+	/**
+	 * Registers the stored arenas that were waiting for a world which has just been loaded.
+	 * Walls left standing when the world was unloaded are restored from their pending journals first.
+	 * @param world The loaded world.
+	 */
+	public void bindWorld(World world) {
+		replayPendingJournals();
+		List<Arenas> bound = new ArrayList<>();
+		for (ArenaData data : persisted.values()) {
+			if (registry.get().contains(data.name()) || !usesWorld(data, world.getName()) || !isWorldLoaded(data)) continue;
+			Arenas arena = bind(data);
+			if (arena != null) {
+				bound.add(arena);
+			}
+		}
+		if (bound.isEmpty()) return;
+		registry.updateAndGet(current -> current.withAll(bound));
+		bound.forEach(membershipTracker::regionChanged);
+		plugin.getLogger().info("Loaded " + bound.size() + " arenas in world '" + world.getName() + "'.");
+	}
+
+	/**
+	 * Unregisters the arenas in a world that is being unloaded, dropping their spatial index entries and cached data,
+	 * so idle arena worlds can stay unloaded. Their stored data is kept and they are bound again when the world loads.
+	 * @param world The world being unloaded.
+	 */
+	public void unbindWorld(World world) {
+		UUID worldId = world.getUID();
+		List<Arenas> unbound = new ArrayList<>();
+		for (Arenas arena : registry.get().getArenas()) {
+			BlockBox region = arena.getRegion();
+			boolean inWorld = region != null ? region.getWorldId().equals(worldId)
+					: isIn(arena.getPos1(), world) || isIn(arena.getPos2(), world);
+			if (inWorld) {
+				unbound.add(arena);
+			}
+		}
+		if (unbound.isEmpty()) return;
+		for (Arenas arena : unbound) {
+			arena.unbind();
+			unregister(arena);
+			if (isPersistWallTemplates()) {
+				saveWallTemplate(arena); // Loaded again instead of recomputed on the next bind
+			}
+		}
+		plugin.getLogger().info("Unloaded " + unbound.size() + " arenas with world '" + world.getName() + "'.");
+	}
+
+	/**
+	 * Removes an arena from the registry and every lookup structure. Its stored data is left alone.
+	 * A journal still holding wall blocks is kept as a pending journal.
+	 */
+	private void unregister(Arenas arena) {
+		if (unregisterListener != null) {
+			unregisterListener.accept(arena);
+		}
+		registry.updateAndGet(current -> current.without(arena.getName()));
+		spatialIndex.remove(arena);
+		parkedIndex.removeAll(arena);
+		wallPlanner.invalidate(arena);
+		membershipTracker.arenaRemoved(arena);
+		if (arena.getWallJournal() != null) {
+			arena.getWallJournal().close();
+			parkWallJournal(arena.getName());
+		}
+	}
+
+	private static boolean isIn(Location location, World world) {
+		return location != null && world.equals(location.getWorld());
+	}
+
+	/**
+	 * Stores the arena's current data and schedules a write to the arena store.
+	 * Changes made within a short window are written together, see {@link ArenaSaver}.
+	 * @param arena The arena to save.
+	 */
+	public void saveArena(Arenas arena) {
+		persisted.put(arena.getName(), ArenaData.of(arena));
+		if (storeReadable) {
+			saver.markDirty(arena.getName());
+		}
+	}
+
+	/**
+	 * Writes pending arena changes and waits until they are on disk. Used on shutdown.
+	 */
+	public void flushSaves() {
+		fileWatcher.stop();
+		saver.flush();
+	}
+
+	/**
+	 * Applies arena definitions changed outside the plugin (e.g. by deploy tooling) to the live arenas.
+	 * Only added, removed or changed arenas are touched. Arenas with unsaved edits keep the plugin's version,
+	 * arenas that could not be read are left as they are, and arenas in use (wall not open or players inside)
+	 * are updated once they are free.
+	 * @param stored All arenas in the store, freshly loaded.
+	 */
+	void applyStoredChanges(ArenaStore.LoadResult stored) {
+		if (!storeReadable) {
+			storeReadable = true; // The store has been fixed
+			plugin.getLogger().info(store.describe() + " can be read again, arena changes will be saved.");
+		}
+		Map<String, ArenaData> incoming = new LinkedHashMap<>();
+		stored.arenas().forEach(data -> incoming.put(data.name(), data));
+		Set<String> names = new LinkedHashSet<>(persisted.keySet());
+		names.addAll(incoming.keySet());
+		names.removeAll(stored.failedNames()); // Unreadable (e.g. a typo or a half-written file), not removed
+		unreadableNames.clear();
+		unreadableNames.addAll(stored.failedNames());
+		int applied = 0;
+		for (String name : names) {
+			ArenaData data = incoming.get(name);
+			if (Objects.equals(persisted.get(name), data) || saver.isPending(name)) {
+				deferredChanges.remove(name);
+				continue;
+			}
+			Arenas arena = registry.get().get(name);
+			if (arena != null && isInUse(arena)) {
+				deferredChanges.put(name, data);
+				continue;
+			}
+			deferredChanges.remove(name);
+			applyStoredChange(name, data);
+			applied++;
+		}
+		if (applied > 0) {
+			plugin.getLogger().info("Applied " + applied + " arena changes from " + store.describe() + ".");
+		}
+		if (!deferredChanges.isEmpty() && deferredTask == null) {
+			plugin.getLogger().info(deferredChanges.size() + " arena changes from " + store.describe() + " wait until their arenas are free.");
+			deferredTask = plugin.getTaskScheduler().runGlobalTimer(this::applyDeferredChanges, 20L, 20L);
+		}
+	}
+
+	/**
+	 * An arena is in use while its wall is not open, players are inside or it is being reset; external changes wait until then.
+	 */
+	private static boolean isInUse(Arenas arena) {
+		return arena.getWallState() != WallState.OPEN || arena.hasPlayers() || arena.isResetting();
+	}
+
+	private void applyDeferredChanges() {
+		Iterator<Map.Entry<String, ArenaData>> iterator = deferredChanges.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<String, ArenaData> entry = iterator.next();
+			Arenas arena = registry.get().get(entry.getKey());
+			if (arena != null && isInUse(arena)) continue;
+			iterator.remove();
+			if (!saver.isPending(entry.getKey()) && !Objects.equals(persisted.get(entry.getKey()), entry.getValue())) {
+				applyStoredChange(entry.getKey(), entry.getValue());
+				plugin.getLogger().info("Applied the change of arena '" + entry.getKey() + "' from " + store.describe() + ".");
+			}
+		}
+		if (deferredChanges.isEmpty()) {
+			deferredTask.cancel();
+			deferredTask = null;
 		}
 	}
 
+	/**
+	 * Replaces the stored data of one arena. A registered arena is updated in place, so open GUIs keep working.
+	 * @param name The name of the arena.
+	 * @param data The new data, or null if the arena was removed.
+	 */
+	private void applyStoredChange(String name, ArenaData data) {
+		Arenas arena = registry.get().get(name);
+		if (data == null) {
+			persisted.remove(name);
+			if (arena != null) {
+				unregister(arena);
+			}
+			new File(wallTemplateFolder, name + ".wall").delete();
+			return;
+		}
+		persisted.put(name, data);
+		if (arena == null) {
+			if (isWorldLoaded(data)) {
+				Arenas bound = bind(data);
+				if (bound != null) {
+					registry.updateAndGet(current -> current.with(bound));
+					membershipTracker.regionChanged(bound);
+				}
+			}
+			return;
+		}
+		if (!isWorldLoaded(data)) {
+			unregister(arena); // Bound again once its world is loaded
+			return;
+		}
+		try {
+			ArenaSettings settings = data.toSettings();
+			Location pos1 = data.pos1() == null ? null : data.pos1().toLocation();
+			Location pos2 = data.pos2() == null ? null : data.pos2().toLocation();
+			arena.setSettings(settings);
+			warnInvalidEffects(arena);
+			if (!Objects.equals(pos1, arena.getPos1()) || !Objects.equals(pos2, arena.getPos2())) {
+				arena.setPos1(pos1);
+				arena.setPos2(pos2);
+				updateArenaRegion(arena);
+			}
+		} catch (IllegalArgumentException e) {
+			plugin.getLogger().log(Level.WARNING, "Error applying the change of arena '" + name + "': " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Copies the arena data for the saver thread. The data records are immutable, so copying the list is enough.
+	 */
+	private List<ArenaData> snapshotArenas() {
+		return List.copyOf(persisted.values());
+	}
+
 	/**
 	 * Creates a new arena with the given name, positions, and specified required players.
 	 * Automatically saves the arena. Walls are built only when players enter.
@@ -134,75 +555,242 @@ public class ArenaManager {
 	 * @param pos1 The first selected position.
 	 * @param pos2 The second selected position.
 	 * @param requiredPlayers The number of players required to activate this arena.
+	 * @return True if the arena was created, false if the name is invalid or already taken.
 	 */
-	public void createArena(String name, Location pos1, Location pos2, int requiredPlayers) { // NEW: added requiredPlayers
-		if (arenas.containsKey(name)) {
+	public boolean createArena(String name, Location pos1, Location pos2, int requiredPlayers) { // NEW: added requiredPlayers
+		if (!ArenaData.isValidName(name)) {
+			plugin.getLogger().warning("Cannot create arena: '" + name + "' is not a valid arena name!");
+			return false;
+		}
+		if (isNameTaken(name)) {
 			plugin.getLogger().warning("Cannot create arena: Arena '" + name + "' already exists!");
-			return;
+			return false;
 		}
 
 		ArenaSettings defaultSettings = new ArenaSettings();
 		// NEW: Set requiredPlayers in default settings
 		defaultSettings.setRequiredPlayers(requiredPlayers);
+		defaultSettings.setVirtualWall(plugin.getConfig().getBoolean("default-arena-settings.virtual-wall", false));
 
 		Arenas newArena = new Arenas(name, pos1, pos2, defaultSettings);
-		arenas.put(name, newArena);
+		newArena.setWallJournal(createWallJournal(name));
+		newArena.setParkedChunkIndex(parkedIndex);
+		registry.updateAndGet(current -> current.with(newArena));
+		spatialIndex.add(newArena);
+		membershipTracker.regionChanged(newArena);
 		saveArena(newArena);
 
 		plugin.getLogger().info("New arena '" + name + "' created with " + requiredPlayers + " required players."); // Anglický text
+		return true;
+	}
+
+	/**
+	 * Checks whether a name is used by an arena, ignoring case. Arenas waiting for their world and stored arenas
+	 * that cannot be read count too, since a new arena would overwrite their data.
+	 * @param name The name to check.
+	 * @return True if the name is taken.
+	 */
+	public boolean isNameTaken(String name) {
+		String key = ArenaData.nameKey(name);
+		for (String taken : persisted.keySet()) {
+			if (ArenaData.nameKey(taken).equals(key)) return true;
+		}
+		for (String taken : unreadableNames) {
+			if (ArenaData.nameKey(taken).equals(key)) return true;
+		}
+		return registry.get().contains(name);
+	}
+
+	/**
+	 * Gets the current snapshot of all arenas. Safe to call from any thread.
+	 * @return The arena registry.
+	 */
+	public ArenaRegistry getRegistry() {
+		return registry.get();
 	}
 
 	public Arenas getArena(String name) {
-		return arenas.get(name);
+		return registry.get().get(name);
 	}
 
 	public void deleteArena(String name) {
-		if (arenas.containsKey(name)) {
-			arenas.remove(name);
-			arenasConfig.set("arenas." + name, null);
-			try {
-				arenasConfig.save(arenasFile);
-				plugin.getLogger().info("Arena '" + name + "' deleted successfully.");
-			} catch (IOException e) {
-				plugin.getLogger().log(Level.SEVERE, "Error deleting arena '" + name + "': " + e.getMessage(), e);
+		Arenas removed = registry.get().get(name);
+		if (removed != null) {
+			unregister(removed);
+			new File(wallTemplateFolder, name + ".wall").delete();
+			persisted.remove(name);
+			if (storeReadable) {
+				saver.markDirty(name);
+			}
+			plugin.getLogger().info("Arena '" + name + "' deleted successfully.");
+		} else if (persisted.remove(name) != null) {
+			// An arena whose world is not loaded
+			new File(wallTemplateFolder, name + ".wall").delete();
+			if (storeReadable) {
+				saver.markDirty(name);
 			}
+			plugin.getLogger().info("Arena '" + name + "' deleted successfully.");
 		} else {
 			plugin.getLogger().warning("Cannot delete arena: Arena '" + name + "' does not exist!");
 		}
 	}
 
+	/**
+	 * Gets the names of all arenas. The list is immutable and shared by all callers until the arenas change.
+	 * @return The arena names.
+	 */
 	public List<String> getArenaNames() {
-		return new ArrayList<>(arenas.keySet());
+		return registry.get().getNames();
 	}
 
-	public Arenas findArenaByRegion(Location location) {
-		if (location.getWorld() == null) {
-			return null;
+	/**
+	 * Re-indexes an arena after its positions were changed (e.g. from the edit GUI).
+	 * Must be called whenever pos1 or pos2 of a registered arena is modified.
+	 * @param arena The arena whose positions changed.
+	 */
+	public void updateArenaRegion(Arenas arena) {
+		if (registry.get().get(arena.getName()) == arena) {
+			spatialIndex.update(arena);
+			membershipTracker.regionChanged(arena);
+			wallPlanner.invalidate(arena);
 		}
+	}
 
-		for (Arenas arena : arenas.values()) {
-			if (arena.getPos1() != null && arena.getPos2() != null &&
-					arena.getPos1().getWorld() != null && arena.getPos2().getWorld() != null &&
-					arena.getPos1().getWorld().equals(location.getWorld())) {
+	/**
+	 * Restores wall blocks that were parked because their chunk was not loaded when the wall came down.
+	 * Called when a chunk has been loaded; the blocks are restored through the block job queue.
+	 * @param worldId The UUID of the chunk's world.
+	 * @param chunkX The chunk X coordinate.
+	 * @param chunkZ The chunk Z coordinate.
+	 */
+	public void restoreParkedChunk(UUID worldId, int chunkX, int chunkZ) {
+		List<Arenas> waiting = parkedIndex.get(worldId, ArenaSpatialIndex.chunkKey(chunkX, chunkZ));
+		if (waiting.isEmpty()) return; // Nearly every chunk load ends here
+		for (Arenas arena : waiting) {
+			BlockJob job = arena.takeParkedRestore(worldId, chunkX, chunkZ);
+			if (job != null) {
+				// A plan computed from this chunk saw the old wall
+				wallPlanner.invalidate(arena);
+				blockJobQueue.submit(job);
+			}
+		}
+	}
+
+	private File getArenaTemplateFile(Arenas arena) {
+		return new File(arenaTemplateFolder, arena.getName() + ".arena");
+	}
 
-				int minX = Math.min(arena.getPos1().getBlockX(), arena.getPos2().getBlockX());
-				int minY = Math.min(arena.getPos1().getBlockY(), arena.getPos2().getBlockY());
-				int minZ = Math.min(arena.getPos1().getBlockZ(), arena.getPos2().getBlockZ());
-				int maxX = Math.max(arena.getPos1().getBlockX(), arena.getPos2().getBlockX());
-				int maxY = Math.max(arena.getPos1().getBlockY(), arena.getPos2().getBlockY());
-				int maxZ = Math.max(arena.getPos1().getBlockZ(), arena.getPos2().getBlockZ());
+	/**
+	 * Captures every block of the arena into its template file, for later full resets.
+	 * The future completes on the main thread with the number of captured blocks.
+	 * @param arena The arena to capture.
+	 * @return The future result.
+	 */
+	public CompletableFuture<Long> captureTemplate(Arenas arena) {
+		BlockBox region = arena.getRegion();
+		if (region == null) {
+			return CompletableFuture.failedFuture(new IllegalStateException("Arena '" + arena.getName() + "' has no valid positions."));
+		}
+		boolean compress = plugin.getConfig().getBoolean("arena-settings.compress-arena-templates", true);
+		return ArenaTemplate.capture(plugin, region, getArenaTemplateFile(arena), compress);
+	}
 
-				int locX = location.getBlockX();
-				int locY = location.getBlockY();
-				int locZ = location.getBlockZ();
+	/**
+	 * Resets the whole arena to its captured template. The region's chunks are loaded asynchronously and kept
+	 * loaded while the template is played back through the block job queue.
+	 * While the playback runs the arena counts as resetting; a match starting meanwhile cancels it
+	 * (see {@link Arenas#cancelReset()}) and the future fails. Block entity contents are not part of templates.
+	 * The future completes on the main thread with the number of blocks that had to be changed.
+	 * @param arena The arena to reset.
+	 * @return The future result.
+	 */
+	public CompletableFuture<Integer> resetArena(Arenas arena) {
+		BlockBox region = arena.getRegion();
+		File file = getArenaTemplateFile(arena);
+		World world = region == null ? null : Bukkit.getWorld(region.getWorldId());
+		if (world == null) {
+			return CompletableFuture.failedFuture(new IllegalStateException("Arena '" + arena.getName() + "' has no valid positions."));
+		}
+		if (!file.exists()) {
+			return CompletableFuture.failedFuture(new IllegalStateException("Arena '" + arena.getName() + "' has no captured template."));
+		}
+		if (arena.isResetting()) {
+			return CompletableFuture.failedFuture(new IllegalStateException("Arena '" + arena.getName() + "' is already being reset."));
+		}
 
-				if (locX >= minX && locX <= maxX &&
-						locY >= minY && locY <= maxY &&
-						locZ >= minZ && locZ <= maxZ) {
-					return arena;
-				}
+		CompletableFuture<Integer> result = new CompletableFuture<>();
+		List<CompletableFuture<Chunk>> chunkFutures = new ArrayList<>();
+		region.forEachChunk((cx, cz) -> chunkFutures.add(world.getChunkAtAsync(cx, cz)));
+		CompletableFuture.allOf(chunkFutures.toArray(new CompletableFuture[0])).whenComplete((ignored, error) -> {
+			if (error != null) {
+				result.completeExceptionally(error);
+				return;
+			}
+			// A match may have started, or the arena may have been removed, while the chunks were loading
+			if (getArena(arena.getName()) != arena || arena.getWallState() != WallState.OPEN || arena.isResetting()) {
+				result.completeExceptionally(new IllegalStateException("Arena '" + arena.getName() + "' is in use."));
+				return;
 			}
+			ArenaTemplate.Playback playback;
+			try {
+				playback = ArenaTemplate.openPlayback(file, region);
+			} catch (IOException e) {
+				result.completeExceptionally(e);
+				return;
+			}
+			// Tickets keep the chunks loaded until the playback has written them or was cancelled
+			region.forEachChunk((cx, cz) -> world.addPluginChunkTicket(cx, cz, plugin));
+			Runnable releaseTickets = () -> region.forEachChunk((cx, cz) -> world.removePluginChunkTicket(cx, cz, plugin));
+			playback.onComplete(() -> {
+				releaseTickets.run();
+				arena.clearResetJob(playback);
+				if (playback.getError() != null) {
+					result.completeExceptionally(playback.getError());
+				} else {
+					result.complete(playback.getChanged());
+				}
+			});
+			playback.onCancel(() -> {
+				releaseTickets.run();
+				arena.clearResetJob(playback);
+				result.completeExceptionally(new IllegalStateException("Reset of arena '" + arena.getName() + "' was interrupted."));
+			});
+			arena.setResetJob(playback);
+			blockJobQueue.submit(playback);
+		});
+		return result;
+	}
+
+	/**
+	 * Records the state of a block that is about to change, for the rollback of the arena it lies in.
+	 * Does nothing outside sealed arenas.
+	 * @param block The block about to change.
+	 * @param original The block data before the change.
+	 */
+	public void recordBlockChange(Block block, BlockData original) {
+		Arenas arena = spatialIndex.find(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ());
+		if (arena != null && arena.isWallActive()) {
+			arena.recordChange(block.getX(), block.getY(), block.getZ(), original);
 		}
-		return null;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Records the current state of a block that is about to change, see {@link #recordBlockChange(Block, BlockData)}.
+	 * @param block The block about to change.
+	 */
+	public void recordBlockChange(Block block) {
+		Arenas arena = spatialIndex.find(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ());
+		if (arena != null && arena.isWallActive()) {
+			arena.recordChange(block.getX(), block.getY(), block.getZ(), block.getBlockData());
+		}
+	}
+
+	/**
+	 * Finds the arena containing the given location using the chunk spatial index.
+	 * @param location The location to look up.
+	 * @return The arena containing the location, or null if there is none.
+	 */
+	public Arenas findArenaByRegion(Location location) {
+		return spatialIndex.find(location);
+	}
+}
@@ -0,0 +1,147 @@
+package com.vypnito.arena.arenas;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Tracks which arena each player is currently in, together with that arena's bounds.
+ * A move only needs to test whether the player left the cached box; the spatial index
+ * is consulted only on a real crossing. Players outside any arena cache the last chunk
+ * known to contain no arena, so moves within such chunks skip the index as well.
+ * Must only be accessed from the main server thread.
+ */
+public class ArenaMembershipTracker {
+
+	private final ArenaSpatialIndex spatialIndex;
+	private final Map<UUID, Membership> memberships = new HashMap<>();
+
+	/**
+	 * Mutable per-player state, allocated once per player and reused for every move.
+	 */
+	private static final class Membership {
+		private Arenas arena; // Current arena, or null if the player is outside all arenas
+		private UUID worldId;
+		private BlockBox bounds; // Cached region of the current arena, null when it must be re-checked
+		private long emptyChunkKey; // Last chunk known to contain no arena (only while arena == null)
+		private boolean emptyChunkValid;
+
+		private boolean isInsideBounds(UUID worldId, int x, int y, int z) {
+			return bounds != null && bounds.contains(worldId, x, y, z);
+		}
+
+		private void enter(Arenas arena, UUID worldId) {
+			this.arena = arena;
+			this.worldId = worldId;
+			this.emptyChunkValid = false;
+			this.bounds = arena.getRegion();
+		}
+
+		private void leave(UUID worldId) {
+			this.arena = null;
+			this.worldId = worldId;
+			this.bounds = null;
+			this.emptyChunkValid = false;
+		}
+	}
+
+	/**
+	 * Constructor for ArenaMembershipTracker.
+	 * @param spatialIndex The spatial index used for lookups on region crossings.
+	 */
+	public ArenaMembershipTracker(ArenaSpatialIndex spatialIndex) {
+		this.spatialIndex = spatialIndex;
+	}
+
+	/**
+	 * Gets the arena the player is currently tracked in.
+	 * @param playerId The UUID of the player.
+	 * @return The current arena, or null if the player is not in any arena.
+	 */
+	public Arenas getArena(UUID playerId) {
+		Membership membership = memberships.get(playerId);
+		return membership == null ? null : membership.arena;
+	}
+
+	/**
+	 * Updates the player's membership for a new location.
+	 * @param playerId The UUID of the player.
+	 * @param location The player's new location.
+	 * @return The arena containing the new location, or null if there is none.
+	 */
+	public Arenas update(UUID playerId, Location location) {
+		World world = location.getWorld();
+		if (world == null) return getArena(playerId);
+		UUID worldId = world.getUID();
+		int x = location.getBlockX();
+		int y = location.getBlockY();
+		int z = location.getBlockZ();
+
+		Membership membership = memberships.get(playerId);
+		if (membership != null) {
+			// Fast path: still inside the cached arena box
+			if (membership.arena != null && membership.isInsideBounds(worldId, x, y, z)) {
+				return membership.arena;
+			}
+			// Fast path: still outside, in a chunk known to contain no arena
+			if (membership.arena == null && membership.emptyChunkValid && worldId.equals(membership.worldId) &&
+					membership.emptyChunkKey == ArenaSpatialIndex.chunkKey(x >> 4, z >> 4)) {
+				return null;
+			}
+		} else {
+			membership = new Membership();
+			memberships.put(playerId, membership);
+		}
+
+		Arenas found = spatialIndex.find(location);
+		if (found != null) {
+			membership.enter(found, worldId);
+		} else {
+			membership.leave(worldId);
+			if (!spatialIndex.hasArenas(worldId, x >> 4, z >> 4)) {
+				membership.emptyChunkKey = ArenaSpatialIndex.chunkKey(x >> 4, z >> 4);
+				membership.emptyChunkValid = true;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Stops tracking a player (e.g. on quit or death).
+	 * @param playerId The UUID of the player.
+	 * @return The arena the player was in, or null if none.
+	 */
+	public Arenas remove(UUID playerId) {
+		Membership membership = memberships.remove(playerId);
+		return membership == null ? null : membership.arena;
+	}
+
+	/**
+	 * Invalidates cached data after an arena's region changed or a new arena was created.
+	 * Members of the arena keep their membership, but their next move re-checks the new bounds.
+	 * @param arena The arena whose region changed.
+	 */
+	public void regionChanged(Arenas arena) {
+		for (Membership membership : memberships.values()) {
+			membership.emptyChunkValid = false;
+			if (membership.arena == arena) {
+				membership.bounds = null;
+			}
+		}
+	}
+
+	/**
+	 * Drops all memberships of a deleted arena.
+	 * @param arena The deleted arena.
+	 */
+	public void arenaRemoved(Arenas arena) {
+		for (Membership membership : memberships.values()) {
+			if (membership.arena == arena) {
+				membership.leave(membership.worldId);
+			}
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.vypnito.arena.arenas;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the registered arenas. The {@link ArenaManager} publishes a new snapshot
+ * whenever arenas are added or removed, with an atomic update so concurrent changes are never lost.
+ * Any thread can read a consistent set of names and arenas without locking, and the lists are shared
+ * instead of copied per call. Only the set is immutable: the arenas themselves (positions, settings,
+ * players) are live objects changed on the main thread, so other threads should only rely on names.
+ */
+public final class ArenaRegistry {
+
+	/** The registry without any arenas. */
+	public static final ArenaRegistry EMPTY = new ArenaRegistry(new LinkedHashMap<>(), 0);
+
+	private final Map<String, Arenas> byName; // Unmodifiable, in registration order
+	private final List<String> names;
+	private final List<Arenas> arenas;
+	private final long version;
+
+	private ArenaRegistry(LinkedHashMap<String, Arenas> byName, long version) {
+		this.byName = Collections.unmodifiableMap(byName);
+		this.names = List.copyOf(byName.keySet());
+		this.arenas = List.copyOf(byName.values());
+		this.version = version;
+	}
+
+	/**
+	 * Gets an arena by name.
+	 * @param name The name of the arena.
+	 * @return The arena, or null if there is none with this name.
+	 */
+	public Arenas get(String name) {
+		return byName.get(name);
+	}
+
+	/**
+	 * @return True if an arena with this name is registered.
+	 */
+	public boolean contains(String name) {
+		return byName.containsKey(name);
+	}
+
+	/**
+	 * @return The names of all arenas, as an immutable list.
+	 */
+	public List<String> getNames() {
+		return names;
+	}
+
+	/**
+	 * @return All arenas, as an immutable list.
+	 */
+	public List<Arenas> getArenas() {
+		return arenas;
+	}
+
+	public int size() {
+		return arenas.size();
+	}
+
+	/**
+	 * @return The version of this snapshot; every added or removed arena increments it.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Creates a snapshot with an arena added, replacing an arena of the same name.
+	 * @param arena The arena to add.
+	 * @return The new snapshot.
+	 */
+	ArenaRegistry with(Arenas arena) {
+		LinkedHashMap<String, Arenas> copy = new LinkedHashMap<>(byName);
+		copy.put(arena.getName(), arena);
+		return new ArenaRegistry(copy, version + 1);
+	}
+
+	/**
+	 * Creates a snapshot with several arenas added in one step.
+	 * @param added The arenas to add.
+	 * @return The new snapshot.
+	 */
+	ArenaRegistry withAll(Collection<Arenas> added) {
+		LinkedHashMap<String, Arenas> copy = new LinkedHashMap<>(byName);
+		for (Arenas arena : added) {
+			copy.put(arena.getName(), arena);
+		}
+		return new ArenaRegistry(copy, version + 1);
+	}
+
+	/**
+	 * Creates a snapshot without the named arena.
+	 * @param name The name of the arena to remove.
+	 * @return The new snapshot.
+	 */
+	ArenaRegistry without(String name) {
+		LinkedHashMap<String, Arenas> copy = new LinkedHashMap<>(byName);
+		copy.remove(name);
+		return new ArenaRegistry(copy, version + 1);
+	}
+}
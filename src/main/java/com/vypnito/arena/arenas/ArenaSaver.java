@@ -0,0 +1,148 @@
+package com.vypnito.arena.arenas;
+
+import com.vypnito.arena.arena;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Write-behind saver for the arena store. Changes only mark arenas dirty; all changes made within
+ * {@code arena-settings.save-delay-ticks} are written together. The snapshot is taken on the main thread,
+ * then serialized and written by a single background thread through the {@link ArenaStore},
+ * which replaces its files atomically, so a crash never leaves a half-written file behind.
+ * A failed write is retried on its own, with the delay doubling after every failure in a row.
+ */
+public class ArenaSaver {
+
+	private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+	private static final long MAX_RETRY_DELAY_TICKS = 20L * 60;
+
+	private final arena plugin;
+	private final ArenaStore store;
+	private final Supplier<List<ArenaData>> snapshotter; // Called on the main thread; returns immutable data
+	private final ExecutorService writer;
+	private final AtomicBoolean scheduled = new AtomicBoolean(false); // A save is pending within the coalescing window
+	private final Set<String> changed = ConcurrentHashMap.newKeySet(); // Arenas changed since the last snapshot
+	private final Map<String, Long> writing = new ConcurrentHashMap<>(); // Arenas in a snapshot not yet written, with the latest snapshot number
+	private long snapshots = 0; // Number of submitted snapshots; main thread only
+	private final AtomicLong completedWrites = new AtomicLong(); // Number of finished writes, successful or not
+	private final AtomicInteger failedWrites = new AtomicInteger(); // Failed writes in a row, for the retry backoff
+
+	/**
+	 * Constructor for ArenaSaver.
+	 * @param plugin The main plugin instance.
+	 * @param store The store to write to.
+	 * @param snapshotter Builds an immutable snapshot of all arenas; called on the main thread.
+	 */
+	public ArenaSaver(arena plugin, ArenaStore store, Supplier<List<ArenaData>> snapshotter) {
+		this.plugin = plugin;
+		this.store = store;
+		this.snapshotter = snapshotter;
+		this.writer = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "SmartArenas-Saver");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Marks an arena as changed or deleted. It is written once the coalescing window has passed.
+	 * @param name The name of the arena.
+	 */
+	public void markDirty(String name) {
+		changed.add(name);
+		scheduleSave(getSaveDelay());
+	}
+
+	private long getSaveDelay() {
+		return Math.max(1L, plugin.getConfig().getLong("arena-settings.save-delay-ticks", 20L));
+	}
+
+	private void scheduleSave(long delayTicks) {
+		// Once shutting down, flush() writes whatever is left
+		if (writer.isShutdown() || !plugin.isEnabled()) return;
+		if (scheduled.compareAndSet(false, true)) {
+			plugin.getTaskScheduler().runGlobalLater(this::saveNow, delayTicks);
+		}
+	}
+
+	/**
+	 * Checks whether the plugin's version of an arena has not reached the store yet.
+	 * @param name The name of the arena.
+	 * @return True if the arena is waiting to be written or is being written.
+	 */
+	public boolean isPending(String name) {
+		return changed.contains(name) || writing.containsKey(name);
+	}
+
+	/**
+	 * Gets the number of finished writes. Safe to call from any thread.
+	 * @return The write count.
+	 */
+	public long getCompletedWrites() {
+		return completedWrites.get();
+	}
+
+	/**
+	 * Writes any pending changes and waits for all writes to finish. Used on shutdown.
+	 */
+	public void flush() {
+		if (scheduled.getAndSet(false)) {
+			submitSnapshot();
+		}
+		writer.shutdown();
+		try {
+			if (!writer.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				plugin.getLogger().severe("Timed out while saving " + store.describe() + ".");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void saveNow() {
+		if (!scheduled.getAndSet(false) || writer.isShutdown()) return; // Already flushed
+		// Changes made after this snapshot mark the data dirty again and schedule another save
+		submitSnapshot();
+	}
+
+	private void submitSnapshot() {
+		Set<String> names = new HashSet<>();
+		for (String name : changed) {
+			changed.remove(name);
+			names.add(name);
+		}
+		List<ArenaData> snapshot = snapshotter.get();
+		long snapshotNumber = ++snapshots;
+		long saveDelay = getSaveDelay(); // Read here, the config is not read off the main thread
+		names.forEach(name -> writing.put(name, snapshotNumber));
+		writer.execute(() -> {
+			try {
+				store.write(snapshot, names);
+				failedWrites.set(0);
+			} catch (IOException e) {
+				changed.addAll(names);
+				// Retried even if nothing else changes, backing off while the store keeps failing
+				int failures = failedWrites.incrementAndGet();
+				long delay = Math.min(MAX_RETRY_DELAY_TICKS, saveDelay << Math.min(failures, 10));
+				plugin.getLogger().log(Level.SEVERE, "Error saving " + store.describe() + ", retrying in " + (delay / 20.0) + " seconds: " + e.getMessage(), e);
+				scheduleSave(delay);
+			} finally {
+				names.forEach(name -> writing.remove(name, snapshotNumber)); // Unless a later snapshot holds it too
+				completedWrites.incrementAndGet();
+			}
+		});
+	}
+}
@@ -1,8 +1,10 @@
 package com.vypnito.arena.arenas;
 
 import org.bukkit.Material;
+import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -15,8 +17,11 @@ public class ArenaSettings {
 	private boolean allowBlockPlace = false;
 	private boolean allowItemDrop = false;
 	private boolean disableHunger = true;
+	private boolean virtualWall = false; // Wall exists only client-side, sent as block change packets
 	private int wallRemovalDelay = 30;
 	private List<String> effects = new ArrayList<>(); // Stored as String for easy saving/loading
+	private List<PotionEffect> compiledEffects = List.of(); // Ready effects for arena entry, rebuilt when effects change
+	private List<String> invalidEffects = List.of(); // Entries that could not be compiled
 	private int requiredPlayers = 2; // NEW: Default to 2 players for 1v1
 
 	public ArenaSettings() {
@@ -38,10 +43,28 @@ public class ArenaSettings {
 	public boolean isDisableHunger() { return disableHunger; }
 	public void setDisableHunger(boolean disableHunger) { this.disableHunger = disableHunger; }
 
+	public boolean isVirtualWall() { return virtualWall; }
+	public void setVirtualWall(boolean virtualWall) { this.virtualWall = virtualWall; }
+
 	public int getWallRemovalDelay() { return wallRemovalDelay; }
 	public void setWallRemovalDelay(int wallRemovalDelay) { this.wallRemovalDelay = wallRemovalDelay; }
 
-	public List<String> getEffects() { return effects; }
+	/**
+	 * Gets the effect entries ("NAME:AMPLIFIER") as stored. Use {@link #addEffect(String)},
+	 * {@link #removeEffect(PotionEffectType)} or {@link #setEffects(List)} to change them.
+	 * @return An unmodifiable view of the entries.
+	 */
+	public List<String> getEffects() { return Collections.unmodifiableList(effects); }
+
+	/**
+	 * Replaces all effect entries, e.g. when the arena is loaded.
+	 * @param effectStrings The entries ("NAME:AMPLIFIER").
+	 */
+	public void setEffects(List<String> effectStrings) {
+		effects = new ArrayList<>(effectStrings);
+		compileEffects();
+	}
+
 	public void addEffect(String effectString) {
 		String newEffectType = effectString.split(":")[0];
 		boolean alreadyHas = effects.stream().anyMatch(e -> e.startsWith(newEffectType + ":"));
@@ -52,14 +75,75 @@ public class ArenaSettings {
 					.map(e -> e.startsWith(newEffectType + ":") ? effectString : e)
 					.collect(Collectors.toList());
 		}
+		compileEffects();
 	}
 	public void removeEffect(PotionEffectType type) {
-		effects.removeIf(s -> s.startsWith(type.getName() + ":"));
+		if (effects.removeIf(s -> s.startsWith(type.getName() + ":"))) {
+			compileEffects();
+		}
 	}
 	public boolean hasEffect(PotionEffectType type) {
 		return effects.stream().anyMatch(s -> s.startsWith(type.getName() + ":"));
 	}
 
+	/**
+	 * Gets the effects applied on arena entry, parsed once when the entries changed.
+	 * The list is unmodifiable and {@link PotionEffect} instances are immutable, so it can be shared freely.
+	 * @return The compiled effects.
+	 */
+	public List<PotionEffect> getCompiledEffects() { return compiledEffects; }
+
+	/**
+	 * Gets the entries skipped by the last compilation because they are malformed or name an unknown effect.
+	 * @return The invalid entries.
+	 */
+	public List<String> getInvalidEffects() { return invalidEffects; }
+
+	private void compileEffects() {
+		List<PotionEffect> compiled = new ArrayList<>(effects.size());
+		List<String> invalid = new ArrayList<>();
+		for (String effectString : effects) {
+			PotionEffect effect = compileEffect(effectString);
+			if (effect != null) {
+				compiled.add(effect);
+			} else {
+				invalid.add(effectString);
+			}
+		}
+		compiledEffects = List.copyOf(compiled);
+		invalidEffects = List.copyOf(invalid);
+	}
+
+	/**
+	 * Parses one "NAME:AMPLIFIER" entry into an infinite, particle-free effect.
+	 * @param effectString The entry.
+	 * @return The effect, or null if the entry is malformed or the effect is unknown.
+	 */
+	@SuppressWarnings("deprecation") // getByName resolves the legacy names the entries are stored with
+	private static PotionEffect compileEffect(String effectString) {
+		String[] parts = effectString.split(":");
+		if (parts.length != 2) return null;
+		String effectName = parts[0].toUpperCase().trim();
+		// Mapping old effect names to new ones (for backward compatibility if needed)
+		effectName = switch (effectName) {
+			case "STRENGTH" -> "INCREASE_DAMAGE";
+			case "HASTE" -> "FAST_DIGGING";
+			case "MINING_FATIGUE" -> "SLOW_DIGGING";
+			case "SLOWNESS" -> "SLOW";
+			case "NAUSEA" -> "CONFUSION";
+			default -> effectName;
+		};
+		PotionEffectType type = PotionEffectType.getByName(effectName);
+		if (type == null) return null;
+		try {
+			int amplifier = Integer.parseInt(parts[1].trim()); // Amplifier is typically 1 less than level (level 1 = amplifier 0)
+			// Infinite duration (Integer.MAX_VALUE) with the given amplifier
+			return new PotionEffect(type, Integer.MAX_VALUE, amplifier, false, false);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
 	// NEW: Getter and Setter for requiredPlayers
 	public int getRequiredPlayers() { return requiredPlayers; }
 	public void setRequiredPlayers(int requiredPlayers) { this.requiredPlayers = requiredPlayers; }
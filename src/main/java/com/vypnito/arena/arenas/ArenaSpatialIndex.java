@@ -0,0 +1,138 @@
+package com.vypnito.arena.arenas;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Per-world spatial index mapping packed chunk coordinates to the arenas overlapping that chunk.
+ * A lookup only tests the arenas registered for the chunk the location lies in,
+ * so most chunks answer "no arena" with a single map lookup.
+ * Must only be accessed from the main server thread.
+ */
+public class ArenaSpatialIndex {
+
+	// World UUID -> packed chunk key -> arenas overlapping that chunk
+	private final Map<UUID, Map<Long, List<Entry>>> worlds = new HashMap<>();
+	// Remembers what each arena was indexed with, so it can be removed even after its positions changed
+	private final Map<Arenas, Entry> indexed = new HashMap<>();
+
+	// The region is captured at index time so removal works even after the arena moved
+	private record Entry(Arenas arena, BlockBox region) {}
+
+	/**
+	 * Packs chunk coordinates into a single long key.
+	 * @param chunkX The chunk X coordinate.
+	 * @param chunkZ The chunk Z coordinate.
+	 * @return The packed key.
+	 */
+	public static long chunkKey(int chunkX, int chunkZ) {
+		return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Adds an arena to the index. Arenas without a complete region are ignored.
+	 * @param arena The arena to index.
+	 */
+	public void add(Arenas arena) {
+		remove(arena);
+		BlockBox region = arena.getRegion();
+		if (region == null) return;
+
+		Entry entry = new Entry(arena, region);
+		Map<Long, List<Entry>> chunks = worlds.computeIfAbsent(region.getWorldId(), k -> new HashMap<>());
+		region.forEachChunk((cx, cz) -> chunks.computeIfAbsent(chunkKey(cx, cz), k -> new ArrayList<>(1)).add(entry));
+		indexed.put(arena, entry);
+	}
+
+	/**
+	 * Removes an arena from the index, using the bounds it was indexed with.
+	 * @param arena The arena to remove.
+	 */
+	public void remove(Arenas arena) {
+		Entry entry = indexed.remove(arena);
+		if (entry == null) return;
+
+		BlockBox region = entry.region();
+		Map<Long, List<Entry>> chunks = worlds.get(region.getWorldId());
+		if (chunks == null) return;
+		region.forEachChunk((cx, cz) -> {
+			long key = chunkKey(cx, cz);
+			List<Entry> entries = chunks.get(key);
+			if (entries == null) return;
+			entries.remove(entry);
+			if (entries.isEmpty()) {
+				chunks.remove(key);
+			}
+		});
+		if (chunks.isEmpty()) {
+			worlds.remove(region.getWorldId());
+		}
+	}
+
+	/**
+	 * Re-indexes an arena after its positions have changed.
+	 * @param arena The arena to update.
+	 */
+	public void update(Arenas arena) {
+		add(arena);
+	}
+
+	/**
+	 * Finds the arena containing the given block location.
+	 * @param location The location to look up.
+	 * @return The arena containing the location, or null if there is none.
+	 */
+	public Arenas find(Location location) {
+		World world = location.getWorld();
+		if (world == null) return null;
+		return find(world.getUID(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+	}
+
+	/**
+	 * Finds the arena containing the given block position.
+	 * @param worldId The UUID of the world.
+	 * @param x The block X coordinate.
+	 * @param y The block Y coordinate.
+	 * @param z The block Z coordinate.
+	 * @return The arena containing the position, or null if there is none.
+	 */
+	public Arenas find(UUID worldId, int x, int y, int z) {
+		Map<Long, List<Entry>> chunks = worlds.get(worldId);
+		if (chunks == null) return null;
+		List<Entry> entries = chunks.get(chunkKey(x >> 4, z >> 4));
+		if (entries == null) return null;
+		for (int i = 0, size = entries.size(); i < size; i++) {
+			Entry entry = entries.get(i);
+			if (entry.region().contains(x, y, z)) {
+				return entry.arena();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether any arena overlaps the given chunk.
+	 * @param worldId The UUID of the world.
+	 * @param chunkX The chunk X coordinate.
+	 * @param chunkZ The chunk Z coordinate.
+	 * @return True if at least one arena overlaps the chunk.
+	 */
+	public boolean hasArenas(UUID worldId, int chunkX, int chunkZ) {
+		Map<Long, List<Entry>> chunks = worlds.get(worldId);
+		return chunks != null && chunks.containsKey(chunkKey(chunkX, chunkZ));
+	}
+
+	/**
+	 * Removes every arena from the index.
+	 */
+	public void clear() {
+		worlds.clear();
+		indexed.clear();
+	}
+}
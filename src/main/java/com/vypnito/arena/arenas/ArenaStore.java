@@ -0,0 +1,78 @@
+package com.vypnito.arena.arenas;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Storage backend for arena definitions, working only with immutable {@link ArenaData}.
+ * Loading is called on the main thread during startup and may fan out to worker threads;
+ * writing runs on the {@link ArenaSaver} thread.
+ */
+public interface ArenaStore {
+
+	/**
+	 * @return True if the store already holds saved arenas (its file or folder exists).
+	 */
+	boolean exists();
+
+	/**
+	 * Result of {@link #load()}.
+	 * @param arenas The arenas that were read.
+	 * @param failedNames Names of stored arenas that exist but could not be read; they are not in {@code arenas}
+	 *                    and must not be treated as removed.
+	 */
+	record LoadResult(List<ArenaData> arenas, Set<String> failedNames) {
+
+		public LoadResult {
+			arenas = List.copyOf(arenas);
+			failedNames = Set.copyOf(failedNames);
+		}
+	}
+
+	/**
+	 * Loads all stored arenas. A single arena that cannot be read is reported in {@link LoadResult#failedNames()}.
+	 * @return The stored arenas; empty if nothing has been stored yet.
+	 * @throws IOException If the stored data cannot be read at all.
+	 */
+	LoadResult load() throws IOException;
+
+	/**
+	 * Writes arenas. Stores may write only what changed, or everything at once.
+	 * @param arenas A consistent snapshot of all arenas.
+	 * @param changed Names of the arenas changed or deleted since the last write.
+	 * @throws IOException If writing fails.
+	 */
+	void write(List<ArenaData> arenas, Set<String> changed) throws IOException;
+
+	/**
+	 * @return The file or folder holding the stored arenas.
+	 */
+	File getLocation();
+
+	/**
+	 * @return A short description of where the arenas are stored, for log messages.
+	 */
+	String describe();
+
+	/**
+	 * Writes a file through a temp file that atomically replaces it, so readers and crashes
+	 * never see a half-written file.
+	 * @param file The file to replace.
+	 * @param data The new content.
+	 * @throws IOException If writing fails.
+	 */
+	static void replaceAtomically(File file, byte[] data) throws IOException {
+		File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+		Files.write(temp.toPath(), data);
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
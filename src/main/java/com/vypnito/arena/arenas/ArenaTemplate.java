@@ -0,0 +1,542 @@
+package com.vypnito.arena.arenas;
+
+import com.vypnito.arena.arena;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Binary snapshot of every block in an arena region, used for full resets without external tools.
+ * Only block data is stored: block entity contents (chest items, sign text, spawner settings) are not captured,
+ * so a container that was broken comes back empty and existing ones keep whatever they hold.
+ *
+ * Layout: an uncompressed header (magic, version, flags, world UUID, region bounds, captured Y range),
+ * followed by a body that is optionally gzip compressed. The body holds one record per chunk section
+ * the region touches, in chunk order: a palette of block data strings and the section's blocks
+ * (only those inside the region) as bit-packed palette indices.
+ * Capturing reads chunk snapshots off the main thread; playback maps the file and decodes one section
+ * at a time, so neither needs memory proportional to the arena volume.
+ */
+public final class ArenaTemplate {
+
+	private static final int MAGIC = 0x41544D31; // "ATM1"
+	private static final byte VERSION = 1;
+	private static final byte FLAG_GZIP = 1;
+
+	private ArenaTemplate() {
+	}
+
+	// --- Capture ---
+
+	/**
+	 * Captures the arena's region into a template file. Chunks are loaded asynchronously and snapshotted on the
+	 * main thread in batches of {@value #CAPTURE_BATCH_CHUNKS}, in file order; each batch is encoded and written
+	 * on an async thread before the next one is loaded, so memory use is bounded by one batch, not the arena.
+	 * The file is replaced atomically when done.
+	 * Must be called from the main server thread; the future completes on the main thread.
+	 * @param plugin The main plugin instance.
+	 * @param region The region to capture.
+	 * @param file The template file.
+	 * @param compress Whether the body should be gzip compressed.
+	 * @return A future completing with the number of captured blocks.
+	 */
+	public static CompletableFuture<Long> capture(arena plugin, BlockBox region, File file, boolean compress) {
+		CompletableFuture<Long> result = new CompletableFuture<>();
+		World world = Bukkit.getWorld(region.getWorldId());
+		if (world == null) {
+			result.completeExceptionally(new IllegalStateException("World of the arena is not loaded."));
+			return result;
+		}
+		int minY = Math.max(region.getMinY(), world.getMinHeight());
+		int maxY = Math.min(region.getMaxY(), world.getMaxHeight() - 1);
+		new Capture(plugin, world, region, file, minY, maxY, compress, result).start();
+		return result;
+	}
+
+	private static final int CAPTURE_BATCH_CHUNKS = 16;
+
+	/**
+	 * A running capture. Batches are loaded on the main thread and encoded on an async thread, strictly one
+	 * after the other, so the output stream is only ever used by one thread at a time.
+	 */
+	private static final class Capture {
+		private final arena plugin;
+		private final World world;
+		private final BlockBox region;
+		private final File file;
+		private final File temp;
+		private final int minY;
+		private final int maxY;
+		private final boolean compress;
+		private final CompletableFuture<Long> result;
+		private final List<Long> chunks = new ArrayList<>(); // In file order
+		private final Map<BlockData, Integer> palette = new HashMap<>();
+		private final List<BlockData> paletteOrder = new ArrayList<>();
+		private final int[] indices = new int[16 * 16 * 16];
+		private int nextChunk = 0;
+		private DataOutputStream out;
+		private long count = 0;
+
+		private Capture(arena plugin, World world, BlockBox region, File file, int minY, int maxY, boolean compress, CompletableFuture<Long> result) {
+			this.plugin = plugin;
+			this.world = world;
+			this.region = region;
+			this.file = file;
+			this.temp = new File(file.getParentFile(), file.getName() + ".tmp");
+			this.minY = minY;
+			this.maxY = maxY;
+			this.compress = compress;
+			this.result = result;
+			region.forEachChunk((cx, cz) -> chunks.add(ArenaSpatialIndex.chunkKey(cx, cz)));
+		}
+
+		private void start() {
+			plugin.getTaskScheduler().runAsync(() -> {
+				try {
+					open();
+				} catch (IOException | RuntimeException e) {
+					fail(e);
+					return;
+				}
+				onMainThread(this::loadNextBatch);
+			});
+		}
+
+		private void open() throws IOException {
+			File parent = file.getParentFile();
+			if (parent != null && !parent.exists()) {
+				parent.mkdirs();
+			}
+			FileOutputStream fileOut = new FileOutputStream(temp);
+			try {
+				writeHeader(fileOut);
+			} catch (IOException | RuntimeException e) {
+				fileOut.close();
+				throw e;
+			}
+			OutputStream bodyOut = new BufferedOutputStream(fileOut, 1 << 16);
+			if (compress) bodyOut = new GZIPOutputStream(bodyOut, 1 << 16);
+			out = new DataOutputStream(bodyOut);
+		}
+
+		private void writeHeader(FileOutputStream fileOut) throws IOException {
+			DataOutputStream header = new DataOutputStream(fileOut);
+			header.writeInt(MAGIC);
+			header.writeByte(VERSION);
+			header.writeByte(compress ? FLAG_GZIP : 0);
+			header.writeLong(region.getWorldId().getMostSignificantBits());
+			header.writeLong(region.getWorldId().getLeastSignificantBits());
+			header.writeInt(region.getMinX());
+			header.writeInt(region.getMinY());
+			header.writeInt(region.getMinZ());
+			header.writeInt(region.getMaxX());
+			header.writeInt(region.getMaxY());
+			header.writeInt(region.getMaxZ());
+			header.writeInt(minY);
+			header.writeInt(maxY);
+			header.flush();
+		}
+
+		private void loadNextBatch() {
+			if (nextChunk >= chunks.size() || maxY < minY) {
+				plugin.getTaskScheduler().runAsync(this::finish);
+				return;
+			}
+			List<Long> batch = chunks.subList(nextChunk, Math.min(chunks.size(), nextChunk + CAPTURE_BATCH_CHUNKS));
+			nextChunk += batch.size();
+			List<CompletableFuture<Chunk>> chunkFutures = new ArrayList<>(batch.size());
+			for (long key : batch) {
+				chunkFutures.add(world.getChunkAtAsync((int) (key >> 32), (int) key));
+			}
+			CompletableFuture.allOf(chunkFutures.toArray(new CompletableFuture[0])).whenComplete((ignored, error) -> {
+				// Chunk futures complete on the main thread, so the snapshots are taken there
+				if (error != null) {
+					plugin.getTaskScheduler().runAsync(() -> fail(error));
+					return;
+				}
+				List<ChunkSnapshot> snapshots = new ArrayList<>(chunkFutures.size());
+				for (CompletableFuture<Chunk> chunkFuture : chunkFutures) {
+					snapshots.add(chunkFuture.join().getChunkSnapshot(false, false, false));
+				}
+				plugin.getTaskScheduler().runAsync(() -> encode(snapshots));
+			});
+		}
+
+		private void encode(List<ChunkSnapshot> snapshots) {
+			try {
+				for (ChunkSnapshot snapshot : snapshots) {
+					encodeChunk(snapshot);
+				}
+			} catch (IOException | RuntimeException e) {
+				fail(e);
+				return;
+			}
+			onMainThread(this::loadNextBatch); // The batch's snapshots can be collected now
+		}
+
+		private void encodeChunk(ChunkSnapshot snapshot) throws IOException {
+			int chunkX = snapshot.getX();
+			int chunkZ = snapshot.getZ();
+			int fromX = Math.max(region.getMinX(), chunkX << 4);
+			int toX = Math.min(region.getMaxX(), (chunkX << 4) + 15);
+			int fromZ = Math.max(region.getMinZ(), chunkZ << 4);
+			int toZ = Math.min(region.getMaxZ(), (chunkZ << 4) + 15);
+			// Sections in the order the SectionCursor visits them
+			for (int sectionY = minY >> 4; sectionY <= maxY >> 4; sectionY++) {
+				int fromY = Math.max(minY, sectionY << 4);
+				int toY = Math.min(maxY, (sectionY << 4) + 15);
+				palette.clear();
+				paletteOrder.clear();
+				int n = 0;
+				for (int y = fromY; y <= toY; y++) {
+					for (int z = fromZ; z <= toZ; z++) {
+						for (int x = fromX; x <= toX; x++) {
+							BlockData data = snapshot.getBlockData(x & 15, y, z & 15);
+							Integer index = palette.get(data);
+							if (index == null) {
+								index = paletteOrder.size();
+								palette.put(data, index);
+								paletteOrder.add(data);
+							}
+							indices[n++] = index;
+						}
+					}
+				}
+				writeVarInt(out, paletteOrder.size());
+				for (BlockData data : paletteOrder) {
+					byte[] encoded = data.getAsString().getBytes(StandardCharsets.UTF_8);
+					writeVarInt(out, encoded.length);
+					out.write(encoded);
+				}
+				int bits = bitsFor(paletteOrder.size());
+				out.writeByte(bits);
+				if (bits > 0) {
+					int perLong = 64 / bits;
+					for (int start = 0; start < n; start += perLong) {
+						long packed = 0;
+						for (int j = 0; j < perLong && start + j < n; j++) {
+							packed |= (long) indices[start + j] << (j * bits);
+						}
+						out.writeLong(packed);
+					}
+				}
+				count += n;
+			}
+		}
+
+		private void finish() {
+			try {
+				out.close(); // Finishes the gzip stream and closes the file
+				out = null;
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException | RuntimeException e) {
+				fail(e);
+				return;
+			}
+			long captured = count;
+			onMainThread(() -> result.complete(captured));
+		}
+
+		private void fail(Throwable error) {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException ignored) {
+					// The temp file is deleted anyway
+				}
+				out = null;
+			}
+			temp.delete();
+			onMainThread(() -> result.completeExceptionally(error));
+		}
+
+		private void onMainThread(Runnable task) {
+			plugin.getTaskScheduler().runAtChunk(world, region.getCenterChunkX(), region.getCenterChunkZ(), task);
+		}
+	}
+
+	// --- Playback ---
+
+	/**
+	 * Opens a template for playback into its region. The returned job writes only blocks that differ from the
+	 * template, without physics. The chunks of the region should be loaded before the job starts.
+	 * @param file The template file.
+	 * @param region The arena's current region; it must equal the captured region.
+	 * @return The playback job, to be submitted to the {@link BlockJobQueue}.
+	 * @throws IOException If the file cannot be read or was captured for another region.
+	 */
+	public static Playback openPlayback(File file, BlockBox region) throws IOException {
+		MappedByteBuffer buffer;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (buffer.capacity() < 54 || buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+			throw new IOException("Unknown arena template format.");
+		}
+		boolean compressed = (buffer.get() & FLAG_GZIP) != 0;
+		BlockBox captured = new BlockBox(new UUID(buffer.getLong(), buffer.getLong()),
+				buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+		if (!captured.equals(region)) {
+			throw new IOException("The template was captured for different arena positions.");
+		}
+		int minY = buffer.getInt();
+		int maxY = buffer.getInt();
+		World world = Bukkit.getWorld(region.getWorldId());
+		if (world == null) {
+			throw new IOException("World of the arena is not loaded.");
+		}
+		InputStream body = new ByteBufferInputStream(buffer.slice());
+		if (compressed) body = new GZIPInputStream(body, 1 << 16);
+		return new Playback(world, region, minY, maxY, new DataInputStream(body));
+	}
+
+	/**
+	 * Writes a template back into the world, one section at a time.
+	 */
+	public static final class Playback extends BlockJob {
+		private final World world;
+		private final DataInputStream in;
+		private final SectionCursor cursor;
+		private final int total;
+		private final Map<String, BlockData> parsedStates = new HashMap<>(); // Shared across sections
+		private final int[] indices = new int[16 * 16 * 16];
+		private BlockData[] palette = new BlockData[0];
+		private int sectionSize = 0;
+		private int position = 0;
+		private int changed = 0;
+		private IOException error;
+
+		private Playback(World world, BlockBox region, int minY, int maxY, DataInputStream in) {
+			this.world = world;
+			this.in = in;
+			this.cursor = new SectionCursor(region, minY, maxY);
+			this.total = maxY < minY ? 0 : (int) Math.min(Integer.MAX_VALUE, (long) region.sizeX() * region.sizeZ() * (maxY - minY + 1));
+			anchorAt(world, region);
+		}
+
+		@Override
+		protected boolean applyNext() {
+			try {
+				while (position >= sectionSize) {
+					if (!cursor.next()) return false;
+					readSection();
+				}
+			} catch (IOException e) {
+				error = e;
+				return false;
+			}
+			int i = position++;
+			int width = cursor.toX - cursor.fromX + 1;
+			int depth = cursor.toZ - cursor.fromZ + 1;
+			int x = cursor.fromX + i % width;
+			int z = cursor.fromZ + (i / width) % depth;
+			int y = cursor.fromY + i / width / depth;
+			BlockData data = palette[indices[i]];
+			Block block = world.getBlockAt(x, y, z);
+			if (data != null && !block.getBlockData().equals(data)) {
+				block.setBlockData(data, false);
+				changed++;
+			}
+			return true;
+		}
+
+		private void readSection() throws IOException {
+			int paletteSize = readVarInt(in);
+			if (palette.length < paletteSize) palette = new BlockData[paletteSize];
+			for (int i = 0; i < paletteSize; i++) {
+				byte[] encoded = new byte[readVarInt(in)];
+				in.readFully(encoded);
+				String state = new String(encoded, StandardCharsets.UTF_8);
+				palette[i] = parsedStates.computeIfAbsent(state, ArenaTemplate::parseState);
+			}
+			sectionSize = cursor.volume();
+			int bits = in.readUnsignedByte();
+			if (bits == 0) {
+				Arrays.fill(indices, 0, sectionSize, 0);
+			} else {
+				int perLong = 64 / bits;
+				long mask = (1L << bits) - 1;
+				for (int start = 0; start < sectionSize; start += perLong) {
+					long packed = in.readLong();
+					for (int j = 0; j < perLong && start + j < sectionSize; j++) {
+						indices[start + j] = (int) ((packed >>> (j * bits)) & mask);
+					}
+				}
+			}
+			position = 0;
+		}
+
+		@Override
+		public int getTotal() {
+			return total;
+		}
+
+		/**
+		 * @return The number of blocks that differed from the template and were rewritten.
+		 */
+		public int getChanged() {
+			return changed;
+		}
+
+		/**
+		 * @return The read error that stopped the playback, or null if it ran through.
+		 */
+		public IOException getError() {
+			return error;
+		}
+
+		@Override
+		protected void onFinished() {
+			close();
+		}
+
+		@Override
+		protected void onCancelled() {
+			close();
+		}
+
+		private void close() {
+			try {
+				in.close();
+			} catch (IOException ignored) {
+				// Nothing left to release
+			}
+		}
+	}
+
+	private static BlockData parseState(String state) {
+		try {
+			return Bukkit.createBlockData(state);
+		} catch (IllegalArgumentException e) {
+			return null; // Unknown in this server version, the block is left as it is
+		}
+	}
+
+	// --- Shared helpers ---
+
+	/**
+	 * Walks the chunk sections a region touches, in the order they are stored, with their clipped bounds.
+	 */
+	private static final class SectionCursor {
+		private final BlockBox region;
+		private final int minY;
+		private final int maxY;
+		private int chunkX;
+		private int chunkZ;
+		private int sectionY;
+		private boolean started = false;
+		private int fromX, toX, fromY, toY, fromZ, toZ;
+
+		private SectionCursor(BlockBox region, int minY, int maxY) {
+			this.region = region;
+			this.minY = minY;
+			this.maxY = maxY;
+		}
+
+		private boolean next() {
+			if (maxY < minY) return false;
+			if (!started) {
+				started = true;
+				chunkX = region.getMinChunkX();
+				chunkZ = region.getMinChunkZ();
+				sectionY = minY >> 4;
+			} else if (++sectionY > maxY >> 4) {
+				sectionY = minY >> 4;
+				if (++chunkZ > region.getMaxChunkZ()) {
+					chunkZ = region.getMinChunkZ();
+					if (++chunkX > region.getMaxChunkX()) return false;
+				}
+			}
+			fromX = Math.max(region.getMinX(), chunkX << 4);
+			toX = Math.min(region.getMaxX(), (chunkX << 4) + 15);
+			fromZ = Math.max(region.getMinZ(), chunkZ << 4);
+			toZ = Math.min(region.getMaxZ(), (chunkZ << 4) + 15);
+			fromY = Math.max(minY, sectionY << 4);
+			toY = Math.min(maxY, (sectionY << 4) + 15);
+			return true;
+		}
+
+		private int volume() {
+			return (toX - fromX + 1) * (toY - fromY + 1) * (toZ - fromZ + 1);
+		}
+	}
+
+	private static int bitsFor(int paletteSize) {
+		return paletteSize <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(paletteSize - 1);
+	}
+
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return value;
+		}
+		throw new IOException("Malformed varint in arena template.");
+	}
+
+	/**
+	 * Streams a (memory-mapped) buffer without copying it.
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		private ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (!buffer.hasRemaining()) return -1;
+			int n = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
@@ -1,10 +1,15 @@
 package com.vypnito.arena.arenas;
 
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.data.BlockData;
 import org.bukkit.entity.Player;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -22,11 +27,22 @@ public class Arenas {
 	private Location pos1;
 	private Location pos2;
 	private ArenaSettings settings;
+	private BlockBox region; // Integer bounds computed from pos1/pos2, null if incomplete
+	private WallTemplate wallTemplate; // Cached wall geometry, built on first use and dropped when a position changes
 
 	// --- Variables for arena state management ---
 	private final Set<UUID> playersInArena = new HashSet<>(); // Sleduje UUID hráčů aktuálně v aréně
 	private boolean wallActive = false; // Sleduje, zda je zeď arény aktivní (postavená)
-	private final Map<Location, BlockData> originalWallBlocks = new HashMap<>(); // Ukládá původní stav bloků zdi
+	private WallBlockStore originalWallBlocks; // Ukládá původní stav bloků zdi, vytvořeno při první stavbě
+	private BlockJob wallJob; // Právě běžící stavba nebo obnova zdi, pokud nějaká je
+	private BlockJob resetJob; // Právě běžící obnova arény ze šablony, pokud nějaká je
+	private WallJournal wallJournal; // Žurnál původních bloků pro obnovu po pádu serveru, může být null
+	private final Map<Long, ParkedChunk> parkedRestores = new HashMap<>(); // Obnovy čekající na načtení chunku
+	private ParkedChunkIndex parkedIndex; // Sdílený index chunků s odloženými obnovami, může být null
+	private WallBlockStore rollbackBlocks; // Původní stav bloků uvnitř arény změněných během zápasu
+	private boolean virtualWall = false; // Zda je aktivní zeď pouze virtuální (jen pakety pro klienty)
+	private WallState wallState = WallState.OPEN; // Fáze životního cyklu zdi řízená herní logikou
+	private long wallStateVersion = 0; // Zvyšuje se při každém přechodu, zastaralé callbacky se tak poznají
 	// --- End of arena state management variables ---
 
 	/**
@@ -41,6 +57,7 @@ public class Arenas {
 		this.pos1 = pos1;
 		this.pos2 = pos2;
 		this.settings = settings;
+		this.region = BlockBox.of(pos1, pos2);
 	}
 
 	// --- Getters and Setters ---
@@ -55,6 +72,8 @@ public class Arenas {
 
 	public void setPos1(Location pos1) {
 		this.pos1 = pos1;
+		this.region = BlockBox.of(pos1, pos2);
+		this.wallTemplate = null;
 	}
 
 	public Location getPos2() {
@@ -63,6 +82,45 @@ public class Arenas {
 
 	public void setPos2(Location pos2) {
 		this.pos2 = pos2;
+		this.region = BlockBox.of(pos1, pos2);
+		this.wallTemplate = null;
+	}
+
+	/**
+	 * Gets the arena's block region, recomputed only when a position changes.
+	 * @return The region, or null if a position is missing or the positions are in different worlds.
+	 */
+	public BlockBox getRegion() {
+		return region;
+	}
+
+	/**
+	 * Gets the precomputed wall geometry of the arena, computing it on first use.
+	 * @return The wall template, or null if the arena has no region.
+	 */
+	public WallTemplate getWallTemplate() {
+		if (wallTemplate == null && region != null) {
+			wallTemplate = WallTemplate.build(region);
+		}
+		return wallTemplate;
+	}
+
+	/**
+	 * Gets the wall template only if it has already been computed or loaded.
+	 * @return The cached template, or null.
+	 */
+	WallTemplate getCachedWallTemplate() {
+		return wallTemplate;
+	}
+
+	/**
+	 * Installs a template loaded from disk. Ignored if it does not describe the current region.
+	 * @param template The loaded template.
+	 */
+	void setWallTemplate(WallTemplate template) {
+		if (template != null && template.getRegion().equals(region)) {
+			this.wallTemplate = template;
+		}
 	}
 
 	public ArenaSettings getSettings() {
@@ -99,6 +157,46 @@ public class Arenas {
 		return new HashSet<>(playersInArena);
 	}
 
+	/**
+	 * @return True if at least one player is currently in the arena.
+	 */
+	public boolean hasPlayers() {
+		return !playersInArena.isEmpty();
+	}
+
+	/**
+	 * @return True while the arena is being reset to its captured template.
+	 */
+	public boolean isResetting() {
+		return resetJob != null && !resetJob.isFinished() && !resetJob.isCancelled();
+	}
+
+	/**
+	 * Marks the arena as being reset by the given template playback.
+	 * @param job The playback job.
+	 */
+	void setResetJob(BlockJob job) {
+		this.resetJob = job;
+	}
+
+	/**
+	 * Forgets a template playback once it has finished.
+	 * @param job The playback job.
+	 */
+	void clearResetJob(BlockJob job) {
+		if (resetJob == job) resetJob = null;
+	}
+
+	/**
+	 * Cancels a running template reset, e.g. because a match starts. Blocks already reset stay reset.
+	 */
+	public void cancelReset() {
+		if (resetJob == null) return;
+		BlockJob job = resetJob;
+		resetJob = null;
+		job.cancel();
+	}
+
 	/**
 	 * Checks if the given player is inside this arena (by their UUID).
 	 * @param player The Player object to check.
@@ -110,6 +208,26 @@ public class Arenas {
 
 	// --- Metody pro správu stavu zdi ---
 
+	/**
+	 * Sets the journal that records original wall blocks on disk, so they survive a crash.
+	 * @param wallJournal The journal, or null to disable journaling.
+	 */
+	void setWallJournal(WallJournal wallJournal) {
+		this.wallJournal = wallJournal;
+	}
+
+	/**
+	 * Sets the index that learns which chunks hold this arena's parked restores.
+	 * @param parkedIndex The shared index, or null.
+	 */
+	void setParkedChunkIndex(ParkedChunkIndex parkedIndex) {
+		this.parkedIndex = parkedIndex;
+	}
+
+	WallJournal getWallJournal() {
+		return wallJournal;
+	}
+
 	/**
 	 * Gets the current wall active status.
 	 * @return True if the wall is currently active (built), otherwise false.
@@ -119,114 +237,639 @@ public class Arenas {
 	}
 
 	/**
-	 * Builds the boundary wall of the arena using the material defined in settings.
+	 * Gets the lifecycle state of the wall.
+	 * @return The current wall state.
+	 */
+	public WallState getWallState() {
+		return wallState;
+	}
+
+	/**
+	 * Moves the wall to a new lifecycle state. Anything created for the previous state
+	 * (pending callbacks, timers) becomes stale, see {@link #isWallState(WallState, long)}.
+	 * @param state The new state.
+	 * @return The version identifying this transition.
+	 */
+	public long setWallState(WallState state) {
+		this.wallState = state;
+		return ++wallStateVersion;
+	}
+
+	/**
+	 * Checks whether the wall is still in the state entered by a given transition.
+	 * @param state The expected state.
+	 * @param version The version returned by {@link #setWallState(WallState)} for that transition.
+	 * @return True if no other transition has happened since.
+	 */
+	public boolean isWallState(WallState state, long version) {
+		return wallState == state && wallStateVersion == version;
+	}
+
+	/**
+	 * Checks whether the active wall is a client-side (virtual) wall.
+	 * @return True if a virtual wall is currently active.
+	 */
+	public boolean isVirtualWallActive() {
+		return wallActive && virtualWall;
+	}
+
+	/**
+	 * Marks a client-side (virtual) wall as active or inactive.
+	 * Virtual walls never change the world, so no blocks are recorded or restored.
+	 * @param active True when the virtual wall has been sent, false when it has been cleared.
+	 */
+	public void setVirtualWallActive(boolean active) {
+		this.virtualWall = active;
+		this.wallActive = active;
+	}
+
+	/**
+	 * Prepares the boundary wall of the arena using the material defined in settings.
 	 * It replaces ONLY replaceable blocks (air, water, etc.) on the outer boundary of the arena.
 	 * Stores the original state of replaced blocks for later restoration.
-	 * This method MUST be called on the main server thread due to block manipulation.
+	 * The returned job must be submitted to the {@link BlockJobQueue} (or run with {@link BlockJob#runToCompletion()})
+	 * on the main server thread. The wall counts as active as soon as the job is created.
+	 * If a restore is still running, it is cancelled and its not yet restored blocks are kept.
+	 * @return The build job, or null if the wall cannot be built.
 	 */
-	public void createBoundaryWall() {
+	public BlockJob createBoundaryWall() {
 		if (pos1 == null || pos2 == null || settings.getWallMaterial() == null) {
-			return;
+			return null;
 		}
 
 		Material wallMaterial = settings.getWallMaterial();
-		originalWallBlocks.clear(); // Clear any old stored blocks from previous wall states
 
 		// Získáme nahraditelné materiály z ArenaManageru
 		Set<Material> replaceableMaterials = ArenaManager.getReplaceableWallMaterials();
 		if (replaceableMaterials.isEmpty()) {
 			// Zde by bylo vhodné logovat, pokud nejsou definovány žádné nahraditelné materiály
 			// plugin.getLogger().warning("No replaceable materials defined for arena walls!");
-			return; // Zabraňte stavbě zdi, pokud nevíme, co nahradit
-		}
-
-		// Determine min and max coordinates for iterating through the arena region
-		int minX = Math.min(pos1.getBlockX(), pos2.getBlockX());
-		int minY = Math.min(pos1.getBlockY(), pos2.getBlockY());
-		int minZ = Math.min(pos1.getBlockZ(), pos2.getBlockZ());
-		int maxX = Math.max(pos1.getBlockX(), pos2.getBlockX());
-		int maxY = Math.max(pos1.getBlockY(), pos2.getBlockY());
-		int maxZ = Math.max(pos1.getBlockZ(), pos2.getBlockZ());
-
-		// Iterate through all blocks in the defined region
-		for (int x = minX; x <= maxX; x++) {
-			for (int y = minY; y <= maxY; y++) {
-				for (int z = minZ; z <= maxZ; z++) {
-					Location currentLocation = new Location(pos1.getWorld(), x, y, z);
-
-					if (isLocationInWall(currentLocation)) {
-						Block block = currentLocation.getBlock();
-
-						// --- KLÍČOVÁ PODMÍNKA: Používáme dynamicky načtené nahraditelné materiály ---
-						if (replaceableMaterials.contains(block.getType())) {
-							originalWallBlocks.put(currentLocation.clone(), block.getBlockData());
-							block.setType(wallMaterial);
-						} else if (block.getType() == wallMaterial) {
-							// Pokud je blok už materiálem zdi, nezměníme ho, ale uložíme jako "už zeď"
-							originalWallBlocks.put(currentLocation.clone(), block.getBlockData());
-						}
-					}
-				}
-			}
+			return null; // Zabraňte stavbě zdi, pokud nevíme, co nahradit
 		}
+
+		World world = pos1.getWorld();
+		BlockBox box = region;
+		if (world == null || box == null || box.volume() > Integer.MAX_VALUE) {
+			return null; // Regions this large cannot be addressed by the wall store
+		}
+
+		cancelWallJob();
+		WallBlockStore store = prepareWallStore(box);
+		compactJournal();
+
+		// Only the six faces of the region, never the interior, in chunk order
+		long[] positions = getWallTemplate().positions();
+
+		WallBuildJob job = new WallBuildJob(world, store, positions, wallMaterial, replaceableMaterials, takeAllParkedRestores());
+		wallJob = job;
+		wallActive = true;
+		virtualWall = false;
+		return job;
+	}
+
+	/**
+	 * Prepares the boundary wall from a precomputed {@link WallPlan}. The plan already knows which blocks
+	 * are replaceable and their original data, so the job only checks each block's type instead of reading its data.
+	 * The plan must match the arena (see {@link WallPlan#matches(Arenas, long)}).
+	 * @param plan The plan computed by the {@link WallPlanner}.
+	 * @return The build job, or null if the wall cannot be built.
+	 */
+	public BlockJob createBoundaryWall(WallPlan plan) {
+		World world = pos1 == null ? null : pos1.getWorld();
+		if (world == null || region == null || !region.equals(plan.getRegion()) || region.volume() > Integer.MAX_VALUE) {
+			return null;
+		}
+		boolean regionChanged = originalWallBlocks != null && !originalWallBlocks.getRegion().equals(region);
+		if (!parkedRestores.isEmpty() || regionChanged) {
+			// The plan may have seen old wall blocks that are still waiting to be restored, so read the world directly
+			return createBoundaryWall();
+		}
+
+		Set<Material> replaceableMaterials = ArenaManager.getReplaceableWallMaterials();
+		if (replaceableMaterials.isEmpty()) {
+			return null;
+		}
+
+		cancelWallJob();
+		WallBlockStore store = prepareWallStore(region);
+		compactJournal();
+		PlannedWallJob job = new PlannedWallJob(world, store, plan, replaceableMaterials);
+		wallJob = job;
 		wallActive = true;
+		virtualWall = false;
+		return job;
 	}
 
 	/**
-	 * Removes the boundary wall of the arena and restores the original blocks that were replaced.
-	 * This method MUST be called on the main server thread due to block manipulation.
+	 * Prepares the removal of the boundary wall, restoring the original blocks that were replaced.
+	 * A running build is cancelled first. The wall stops counting as active immediately.
+	 * The returned job must be submitted to the {@link BlockJobQueue} (or run with {@link BlockJob#runToCompletion()})
+	 * on the main server thread.
+	 * @return The restore job, or null if the arena has no region.
 	 */
-	public void removeBoundaryWall() {
+	public BlockJob removeBoundaryWall() {
 		if (pos1 == null || pos2 == null) {
-			return;
+			return null;
 		}
 
-		for (Map.Entry<Location, BlockData> entry : originalWallBlocks.entrySet()) {
-			Location loc = entry.getKey();
-			BlockData data = entry.getValue();
-			if (loc.getWorld() != null && loc.getWorld().isChunkLoaded(loc.getChunk())) {
-				loc.getBlock().setBlockData(data);
+		cancelWallJob();
+		WallRestoreJob job = createRestoreJob();
+		wallJob = job;
+		wallActive = false;
+		return job;
+	}
+
+	/**
+	 * Detaches the arena from its world before the world unloads. Running wall and reset jobs are cancelled and
+	 * pending wall callbacks become stale. Wall blocks and interior changes still in the world, including
+	 * parked ones, stay in the wall journal and are put back from it when the world loads again.
+	 */
+	void unbind() {
+		cancelReset();
+		cancelWallJob();
+		setWallState(WallState.OPEN);
+	}
+
+	private void cancelWallJob() {
+		if (wallJob != null) {
+			wallJob.cancel();
+			wallJob = null;
+		}
+	}
+
+	private WallRestoreJob createRestoreJob() {
+		World world = originalWallBlocks == null ? null : Bukkit.getWorld(originalWallBlocks.getRegion().getWorldId());
+		return new WallRestoreJob(world, originalWallBlocks);
+	}
+
+	/**
+	 * Gets the store for a wall about to be built in the given region. Originals left over from an
+	 * interrupted restore are kept if the region is unchanged; if the region changed meanwhile,
+	 * they are restored right away, since the new store could not address them.
+	 */
+	private WallBlockStore prepareWallStore(BlockBox box) {
+		if (originalWallBlocks != null && !originalWallBlocks.getRegion().equals(box)) {
+			if (!originalWallBlocks.isEmpty()) {
+				createRestoreJob().runToCompletion();
 			}
+			originalWallBlocks = null;
 		}
-		originalWallBlocks.clear();
-		wallActive = false;
+		if (originalWallBlocks == null) {
+			originalWallBlocks = new WallBlockStore(box);
+		}
+		return originalWallBlocks;
 	}
 
 	/**
-	 * Checks if the given location is on the "boundary" of the arena's bounding box.
-	 * This method defines which blocks form the arena wall (the outline of the 3D box).
-	 * @param location The block location to check.
-	 * @return True if the location is on the boundary (part of the wall), otherwise false.
+	 * Places the wall block by block. Positions already holding a recorded original
+	 * (left over from an interrupted restore) still carry the wall and are skipped.
+	 * Parked restores are applied first, under the same budget, so the build never sees the old wall.
 	 */
-	public boolean isLocationInWall(Location location) {
-		if (pos1 == null || pos2 == null || location.getWorld() == null ||
-				!location.getWorld().equals(pos1.getWorld())) {
-			return false;
+	private final class WallBuildJob extends BlockJob {
+		private final World world;
+		private final WallBlockStore store;
+		private final long[] positions;
+		private final Material wallMaterial;
+		private final Set<Material> replaceableMaterials;
+		private final Deque<ParkedRestoreJob> parkedJobs;
+		private final int parkedTotal;
+		private int index = 0;
+
+		private WallBuildJob(World world, WallBlockStore store, long[] positions, Material wallMaterial, Set<Material> replaceableMaterials, Deque<ParkedRestoreJob> parkedJobs) {
+			this.world = world;
+			this.store = store;
+			this.positions = positions;
+			this.wallMaterial = wallMaterial;
+			this.replaceableMaterials = replaceableMaterials;
+			this.parkedJobs = parkedJobs;
+			this.parkedTotal = parkedJobs.stream().mapToInt(BlockJob::getTotal).sum();
+			anchorAt(world, store.getRegion());
 		}
 
-		int x = location.getBlockX();
-		int y = location.getBlockY();
-		int z = location.getBlockZ();
+		@Override
+		protected boolean applyNext() {
+			while (!parkedJobs.isEmpty()) {
+				if (parkedJobs.peek().step()) return true;
+				parkedJobs.poll();
+			}
+			if (index >= positions.length) return false;
+			long key = positions[index++];
+			int x = BlockKey.x(key), y = BlockKey.y(key), z = BlockKey.z(key);
+			Block block = world.getBlockAt(x, y, z);
+			Material type = block.getType();
+			// --- KLÍČOVÁ PODMÍNKA: Používáme dynamicky načtené nahraditelné materiály ---
+			boolean replaceable = replaceableMaterials.contains(type);
+			if (!replaceable && type != wallMaterial) return true;
+
+			// Pokud je blok už materiálem zdi, nezměníme ho, ale uložíme jako "už zeď"
+			BlockData original = block.getBlockData();
+			if (!store.putIfAbsent(x, y, z, original)) return true;
+			if (wallJournal != null) wallJournal.append(world, x, y, z, original);
+			if (replaceable) {
+				block.setType(wallMaterial);
+			}
+			return true;
+		}
 
-		int minX = Math.min(pos1.getBlockX(), pos2.getBlockX());
-		int minY = Math.min(pos1.getBlockY(), pos2.getBlockY());
-		int minZ = Math.min(pos1.getBlockZ(), pos2.getBlockZ());
-		int maxX = Math.max(pos1.getBlockX(), pos2.getBlockX());
-		int maxY = Math.max(pos1.getBlockY(), pos2.getBlockY());
-		int maxZ = Math.max(pos1.getBlockZ(), pos2.getBlockZ());
+		@Override
+		public int getTotal() {
+			return parkedTotal + positions.length;
+		}
 
-		boolean isInBoundedRegion = (x >= minX && x <= maxX &&
-				y >= minY && y <= maxY &&
-				z >= minZ && z <= maxZ);
+		@Override
+		protected void onFinished() {
+			if (wallJob == this) wallJob = null;
+		}
 
-		if (!isInBoundedRegion) {
-			return false;
+		@Override
+		protected void onCancelled() {
+			// Parked blocks not restored yet go back to waiting for their chunk
+			parkedJobs.forEach(BlockJob::cancel);
+			parkedJobs.clear();
 		}
+	}
+
+	/**
+	 * Applies a prepared {@link WallPlan}: records the planned originals and writes the wall material.
+	 * Each block's live type is checked against the plan first; a block that changed since planning
+	 * (e.g. broken by an explosion after the plan was made) is handled like {@link WallBuildJob} does.
+	 */
+	private final class PlannedWallJob extends BlockJob {
+		private final World world;
+		private final WallBlockStore store;
+		private final WallPlan plan;
+		private final Set<Material> replaceableMaterials;
+		private int index = 0;
+
+		private PlannedWallJob(World world, WallBlockStore store, WallPlan plan, Set<Material> replaceableMaterials) {
+			this.world = world;
+			this.store = store;
+			this.plan = plan;
+			this.replaceableMaterials = replaceableMaterials;
+			anchorAt(world, plan.getRegion());
+		}
+
+		@Override
+		protected boolean applyNext() {
+			if (index >= plan.size()) return false;
+			int i = index++;
+			long key = plan.getPosition(i);
+			int x = BlockKey.x(key), y = BlockKey.y(key), z = BlockKey.z(key);
+			Block block = world.getBlockAt(x, y, z);
+			BlockData original = plan.getOriginal(i);
+			boolean replace = plan.isReplaced(i);
+			Material type = block.getType();
+			if (original == null || type != original.getMaterial()) {
+				// The block changed since the plan was made (or was kept by the plan), so decide from the live block
+				replace = replaceableMaterials.contains(type);
+				if (!replace && type != plan.getWallMaterial()) return true;
+				original = block.getBlockData();
+			}
+			if (!store.putIfAbsent(x, y, z, original)) return true;
+			if (wallJournal != null) wallJournal.append(world, x, y, z, original);
+			if (replace) {
+				block.setType(plan.getWallMaterial());
+			}
+			return true;
+		}
+
+		@Override
+		public int getTotal() {
+			return plan.size();
+		}
+
+		@Override
+		protected void onFinished() {
+			if (wallJob == this) wallJob = null;
+		}
+	}
+
+	/**
+	 * Restores the recorded original blocks chunk by chunk, forgetting each entry once restored.
+	 * Blocks of chunks that are not loaded are never loaded for this; they are parked and
+	 * restored by {@link #takeParkedRestore(UUID, int, int)} when their chunk loads again.
+	 */
+	private final class WallRestoreJob extends BlockJob {
+		private final World world;
+		private final UUID worldId;
+		private final WallBlockStore store;
+		private final int[] pending; // Grouped by chunk
+		private int index = 0;
+		private long currentChunk;
+		private boolean currentChunkLoaded;
+
+		private WallRestoreJob(World world, WallBlockStore store) {
+			this.world = world;
+			this.worldId = store == null ? null : store.getRegion().getWorldId();
+			this.store = store;
+			this.pending = store == null ? new int[0] : store.keysInChunkOrder();
+			anchorAt(world, store == null ? null : store.getRegion());
+		}
+
+		@Override
+		protected boolean applyNext() {
+			if (index >= pending.length) return false;
+			int key = pending[index];
+			int x = store.x(key), y = store.y(key), z = store.z(key);
+			long chunk = ArenaSpatialIndex.chunkKey(x >> 4, z >> 4);
+			if (index == 0 || chunk != currentChunk) {
+				// Checked once per chunk group, so a loaded chunk is restored in one pass
+				currentChunk = chunk;
+				currentChunkLoaded = world != null && world.isChunkLoaded(x >> 4, z >> 4);
+			}
+			index++;
+			BlockData data = store.remove(key);
+			if (data == null) return true;
+			if (currentChunkLoaded) {
+				world.getBlockAt(x, y, z).setBlockData(data);
+			} else {
+				park(worldId, chunk, x, y, z, data);
+			}
+			return true;
+		}
+
+		@Override
+		public int getTotal() {
+			return pending.length;
+		}
+
+		@Override
+		protected void onFinished() {
+			if (wallJob == this) wallJob = null;
+			resetJournalIfRestored();
+		}
+	}
+
+	/**
+	 * Original blocks of one unloaded chunk, waiting to be restored when the chunk loads.
+	 */
+	private static final class ParkedChunk {
+		private final UUID worldId;
+		private long[] positions = new long[16]; // Packed with BlockKey
+		private BlockData[] data = new BlockData[16];
+		private int size = 0;
+
+		private ParkedChunk(UUID worldId) {
+			this.worldId = worldId;
+		}
+
+		private void add(int x, int y, int z, BlockData blockData) {
+			if (size == positions.length) {
+				positions = Arrays.copyOf(positions, size * 2);
+				data = Arrays.copyOf(data, size * 2);
+			}
+			positions[size] = BlockKey.pack(x, y, z);
+			data[size] = blockData;
+			size++;
+		}
+	}
+
+	/**
+	 * Restores the blocks of a parked chunk once it is loaded again.
+	 */
+	private final class ParkedRestoreJob extends BlockJob {
+		private final World world;
+		private final long chunk;
+		private final ParkedChunk parked;
+		private final boolean loadChunks;
+		private int index = 0;
+
+		private ParkedRestoreJob(World world, long chunk, ParkedChunk parked, boolean loadChunks) {
+			this.world = world;
+			this.chunk = chunk;
+			this.parked = parked;
+			this.loadChunks = loadChunks;
+			anchorAt(world, (int) (chunk >> 32), (int) chunk);
+		}
+
+		@Override
+		protected boolean applyNext() {
+			if (index >= parked.size) return false;
+			int i = index++;
+			long key = parked.positions[i];
+			int x = BlockKey.x(key), y = BlockKey.y(key), z = BlockKey.z(key);
+			if (loadChunks || world.isChunkLoaded(x >> 4, z >> 4)) {
+				world.getBlockAt(x, y, z).setBlockData(parked.data[i]);
+			} else {
+				// Unloaded again before its turn came, wait for the next load
+				park(parked.worldId, chunk, x, y, z, parked.data[i]);
+			}
+			return true;
+		}
+
+		@Override
+		public int getTotal() {
+			return parked.size;
+		}
+
+		@Override
+		protected void onFinished() {
+			resetJournalIfRestored();
+		}
+
+		@Override
+		protected void onCancelled() {
+			for (int i = index; i < parked.size; i++) {
+				long key = parked.positions[i];
+				park(parked.worldId, chunk, BlockKey.x(key), BlockKey.y(key), BlockKey.z(key), parked.data[i]);
+			}
+			index = parked.size;
+		}
+	}
+
+	/**
+	 * Records the original state of a block inside the arena before it changes, while the arena is sealed.
+	 * Only the first change of each position is kept, so the rollback restores the state from before the match.
+	 * Blocks on the wall itself are ignored; the wall keeps its own record.
+	 * @param x The block X coordinate.
+	 * @param y The block Y coordinate.
+	 * @param z The block Z coordinate.
+	 * @param original The block data before the change.
+	 */
+	public void recordChange(int x, int y, int z, BlockData original) {
+		BlockBox box = region;
+		if (!wallActive || box == null || !box.contains(x, y, z) || box.onShell(x, y, z)) return;
+		if (rollbackBlocks != null && !rollbackBlocks.getRegion().equals(box)) {
+			// The region changed while changes were pending: put them back before recording new ones
+			if (!rollbackBlocks.isEmpty()) {
+				new RollbackJob(Bukkit.getWorld(rollbackBlocks.getRegion().getWorldId()), rollbackBlocks).runToCompletion();
+			}
+			rollbackBlocks = null;
+		}
+		if (rollbackBlocks == null) {
+			if (box.volume() > Integer.MAX_VALUE) return;
+			rollbackBlocks = new WallBlockStore(box);
+		}
+		if (rollbackBlocks.putIfAbsent(x, y, z, original) && wallJournal != null) {
+			// Journaled like the wall, so the interior is repaired after a crash or a world unload too
+			wallJournal.append(Bukkit.getWorld(box.getWorldId()), x, y, z, original);
+		}
+	}
 
-		boolean isXBoundary = (x == minX || x == maxX);
-		boolean isYBoundary = (y == minY || y == maxY);
-		boolean isZBoundary = (z == minZ || z == maxZ);
+	/**
+	 * Prepares the rollback of every block recorded since the arena was sealed.
+	 * Only changed positions are visited, in chunk order; blocks of unloaded chunks are parked like wall restores.
+	 * Each entry is forgotten once restored; changes recorded after the job was created wait for the next rollback.
+	 * The returned job must be submitted to the {@link BlockJobQueue} on the main server thread.
+	 * @return The rollback job, or null if nothing changed.
+	 */
+	public BlockJob createRollbackJob() {
+		if (rollbackBlocks == null || rollbackBlocks.isEmpty()) {
+			return null;
+		}
+		return new RollbackJob(Bukkit.getWorld(rollbackBlocks.getRegion().getWorldId()), rollbackBlocks);
+	}
 
-		return isXBoundary || isYBoundary || isZBoundary;
+	/**
+	 * Puts back recorded interior blocks without physics, so restoring one block never disturbs the next.
+	 */
+	private final class RollbackJob extends BlockJob {
+		private final World world;
+		private final WallBlockStore store;
+		private final int[] pending; // Grouped by chunk
+		private int index = 0;
+
+		private RollbackJob(World world, WallBlockStore store) {
+			this.world = world;
+			this.store = store;
+			this.pending = store.keysInChunkOrder();
+			anchorAt(world, store.getRegion());
+		}
+
+		@Override
+		protected boolean applyNext() {
+			if (index >= pending.length) return false;
+			int key = pending[index++];
+			BlockData data = store.remove(key);
+			if (data == null) return true;
+			int x = store.x(key), y = store.y(key), z = store.z(key);
+			if (world != null && world.isChunkLoaded(x >> 4, z >> 4)) {
+				world.getBlockAt(x, y, z).setBlockData(data, false);
+			} else {
+				park(store.getRegion().getWorldId(), ArenaSpatialIndex.chunkKey(x >> 4, z >> 4), x, y, z, data);
+			}
+			return true;
+		}
+
+		@Override
+		public int getTotal() {
+			return pending.length;
+		}
+
+		@Override
+		protected void onFinished() {
+			resetJournalIfRestored();
+		}
+	}
+
+	/**
+	 * Checks whether restores are waiting for unloaded chunks.
+	 * @return True if at least one chunk has parked restores.
+	 */
+	public boolean hasParkedRestores() {
+		return !parkedRestores.isEmpty();
+	}
+
+	/**
+	 * Takes the parked restores of a chunk that has just been loaded.
+	 * The returned job must be submitted to the {@link BlockJobQueue} on the main server thread.
+	 * @param worldId The UUID of the chunk's world.
+	 * @param chunkX The chunk X coordinate.
+	 * @param chunkZ The chunk Z coordinate.
+	 * @return The restore job, or null if nothing was parked for this chunk.
+	 */
+	public BlockJob takeParkedRestore(UUID worldId, int chunkX, int chunkZ) {
+		long chunk = ArenaSpatialIndex.chunkKey(chunkX, chunkZ);
+		ParkedChunk parked = parkedRestores.get(chunk);
+		World world = Bukkit.getWorld(worldId);
+		if (parked == null || world == null || !parked.worldId.equals(worldId)) return null;
+		unpark(chunk);
+		return new ParkedRestoreJob(world, chunk, parked, false);
+	}
+
+	/**
+	 * Takes all parked blocks as jobs that load their chunks. Used before a new wall is built,
+	 * since building reads (and loads) those chunks anyway and must not see the old wall.
+	 */
+	private Deque<ParkedRestoreJob> takeAllParkedRestores() {
+		Deque<ParkedRestoreJob> jobs = new ArrayDeque<>();
+		if (parkedRestores.isEmpty()) return jobs;
+		for (Map.Entry<Long, ParkedChunk> entry : new HashMap<>(parkedRestores).entrySet()) {
+			World world = Bukkit.getWorld(entry.getValue().worldId);
+			if (world == null) continue; // Stays parked until its world is back
+			unpark(entry.getKey());
+			jobs.add(new ParkedRestoreJob(world, entry.getKey(), entry.getValue(), true));
+		}
+		return jobs;
+	}
+
+	private void park(UUID worldId, long chunk, int x, int y, int z, BlockData data) {
+		ParkedChunk parked = parkedRestores.get(chunk);
+		if (parked == null) {
+			parked = new ParkedChunk(worldId);
+			parkedRestores.put(chunk, parked);
+			if (parkedIndex != null) parkedIndex.add(worldId, chunk, this);
+		}
+		parked.add(x, y, z, data);
+	}
+
+	private void unpark(long chunk) {
+		ParkedChunk parked = parkedRestores.remove(chunk);
+		if (parked != null && parkedIndex != null) parkedIndex.remove(parked.worldId, chunk, this);
+	}
+
+	/**
+	 * Rewrites the journal with only the blocks still waiting to be restored, before a new wall starts.
+	 * Records of earlier matches whose blocks have been put back would otherwise be replayed after a crash,
+	 * overwriting whatever was built there since (the first record of a position wins).
+	 */
+	private void compactJournal() {
+		if (wallJournal == null) return;
+		wallJournal.reset();
+		journalStore(originalWallBlocks);
+		journalStore(rollbackBlocks);
+		for (ParkedChunk parked : parkedRestores.values()) {
+			World world = Bukkit.getWorld(parked.worldId);
+			if (world == null) continue;
+			for (int i = 0; i < parked.size; i++) {
+				long key = parked.positions[i];
+				wallJournal.append(world, BlockKey.x(key), BlockKey.y(key), BlockKey.z(key), parked.data[i]);
+			}
+		}
+	}
+
+	private void journalStore(WallBlockStore store) {
+		if (store == null || store.isEmpty()) return;
+		World world = Bukkit.getWorld(store.getRegion().getWorldId());
+		if (world == null) return;
+		for (int key : store.keysInChunkOrder()) {
+			BlockData data = store.get(key);
+			if (data != null) {
+				wallJournal.append(world, store.x(key), store.y(key), store.z(key), data);
+			}
+		}
+	}
+
+	private void resetJournalIfRestored() {
+		// Everything recorded has been put back, the journal is no longer needed
+		if (wallJournal != null && (originalWallBlocks == null || originalWallBlocks.isEmpty())
+				&& (rollbackBlocks == null || rollbackBlocks.isEmpty()) && parkedRestores.isEmpty()) {
+			wallJournal.reset();
+		}
+	}
+
+	/**
+	 * Checks if the given location is on the "boundary" of the arena's bounding box.
+	 * This method defines which blocks form the arena wall (the outline of the 3D box).
+	 * @param location The block location to check.
+	 * @return True if the location is on the boundary (part of the wall), otherwise false.
+	 */
+	public boolean isLocationInWall(Location location) {
+		BlockBox box = region;
+		World world = location.getWorld();
+		if (box == null || world == null || !box.getWorldId().equals(world.getUID())) {
+			return false;
+		}
+		return box.onShell(location.getBlockX(), location.getBlockY(), location.getBlockZ());
 	}
-}
\ No newline at end of file
+}
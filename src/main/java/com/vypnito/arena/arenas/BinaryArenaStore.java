@@ -0,0 +1,207 @@
+package com.vypnito.arena.arenas;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Stores all arenas in one compact binary file ({@code arenas.bin}).
+ * The header holds an index with the offset and length of every record, so loading maps the file
+ * and decodes the records in parallel on the common fork-join pool. Every write replaces the whole file.
+ * <pre>
+ * header:  int magic "ARB1", byte version, int count
+ * index:   count x (int offset, int length)
+ * record:  name, pos1, pos2, wall material, byte flags, int removal delay, int required players, effects
+ * </pre>
+ */
+public class BinaryArenaStore implements ArenaStore {
+
+	private static final int MAGIC = 0x41524231; // "ARB1"
+	private static final byte VERSION = 1;
+	private static final int HEADER_SIZE = 9;
+	private static final int INDEX_ENTRY_SIZE = 8;
+
+	// Bits of the flags byte
+	private static final int FLAG_BLOCK_BREAK = 1;
+	private static final int FLAG_BLOCK_PLACE = 1 << 1;
+	private static final int FLAG_ITEM_DROP = 1 << 2;
+	private static final int FLAG_DISABLE_HUNGER = 1 << 3;
+	private static final int FLAG_VIRTUAL_WALL = 1 << 4;
+
+	private final File file;
+
+	/**
+	 * Constructor for BinaryArenaStore.
+	 * @param file The arenas.bin file.
+	 */
+	public BinaryArenaStore(File file) {
+		this.file = file;
+	}
+
+	@Override
+	public boolean exists() {
+		return file.exists();
+	}
+
+	@Override
+	public LoadResult load() throws IOException {
+		if (!file.exists()) return new LoadResult(List.of(), Set.of());
+		MappedByteBuffer buffer;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+			throw new IOException("Unknown arena store format in " + file.getName() + ".");
+		}
+		int count = buffer.getInt();
+		if (count < 0 || (long) HEADER_SIZE + (long) count * INDEX_ENTRY_SIZE > buffer.capacity()) {
+			throw new IOException("Corrupted arena index in " + file.getName() + ".");
+		}
+		int[] offsets = new int[count];
+		int[] lengths = new int[count];
+		for (int i = 0; i < count; i++) {
+			offsets[i] = buffer.getInt();
+			lengths[i] = buffer.getInt();
+			if (offsets[i] < 0 || lengths[i] < 0 || (long) offsets[i] + lengths[i] > buffer.capacity()) {
+				throw new IOException("Corrupted arena index in " + file.getName() + ".");
+			}
+		}
+
+		// Each record gets its own slice, so the workers never share a buffer position
+		ArenaData[] decoded = new ArenaData[count];
+		try {
+			IntStream.range(0, count).parallel().forEach(i -> decoded[i] = decode(buffer.slice(offsets[i], lengths[i])));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		Set<String> nameKeys = new HashSet<>();
+		for (ArenaData data : decoded) {
+			if (!nameKeys.add(ArenaData.nameKey(data.name()))) {
+				throw new IOException("Arena '" + data.name() + "' in " + file.getName() + " has the same name as another arena in a different case.");
+			}
+		}
+		return new LoadResult(Arrays.asList(decoded), Set.of()); // A corrupted record fails the whole load
+	}
+
+	@Override
+	public void write(List<ArenaData> arenas, Set<String> changed) throws IOException {
+		byte[][] records = new byte[arenas.size()][];
+		for (int i = 0; i < records.length; i++) {
+			records[i] = encode(arenas.get(i));
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeInt(records.length);
+		int offset = HEADER_SIZE + records.length * INDEX_ENTRY_SIZE;
+		for (byte[] record : records) {
+			out.writeInt(offset);
+			out.writeInt(record.length);
+			offset += record.length;
+		}
+		for (byte[] record : records) {
+			out.write(record);
+		}
+		out.flush();
+		ArenaStore.replaceAtomically(file, bytes.toByteArray());
+	}
+
+	@Override
+	public File getLocation() {
+		return file;
+	}
+
+	@Override
+	public String describe() {
+		return file.getName();
+	}
+
+	private static byte[] encode(ArenaData data) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+		DataOutputStream out = new DataOutputStream(bytes);
+		writeString(out, data.name());
+		writeLocation(out, data.pos1());
+		writeLocation(out, data.pos2());
+		writeString(out, data.wallMaterial());
+		int flags = (data.allowBlockBreak() ? FLAG_BLOCK_BREAK : 0)
+				| (data.allowBlockPlace() ? FLAG_BLOCK_PLACE : 0)
+				| (data.allowItemDrop() ? FLAG_ITEM_DROP : 0)
+				| (data.disableHunger() ? FLAG_DISABLE_HUNGER : 0)
+				| (data.virtualWall() ? FLAG_VIRTUAL_WALL : 0);
+		out.writeByte(flags);
+		out.writeInt(data.wallRemovalDelay());
+		out.writeInt(data.requiredPlayers());
+		out.writeShort(data.effects().size());
+		for (String effect : data.effects()) {
+			writeString(out, effect);
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static ArenaData decode(ByteBuffer in) {
+		try {
+			String name = readString(in);
+			ArenaData.StoredLocation pos1 = readLocation(in);
+			ArenaData.StoredLocation pos2 = readLocation(in);
+			String wallMaterial = readString(in);
+			int flags = in.get();
+			int wallRemovalDelay = in.getInt();
+			int requiredPlayers = in.getInt();
+			int effectCount = in.getShort() & 0xFFFF;
+			List<String> effects = new ArrayList<>(effectCount);
+			for (int i = 0; i < effectCount; i++) {
+				effects.add(readString(in));
+			}
+			return new ArenaData(name, pos1, pos2, wallMaterial,
+					(flags & FLAG_BLOCK_BREAK) != 0, (flags & FLAG_BLOCK_PLACE) != 0, (flags & FLAG_ITEM_DROP) != 0,
+					(flags & FLAG_DISABLE_HUNGER) != 0, (flags & FLAG_VIRTUAL_WALL) != 0,
+					wallRemovalDelay, effects, requiredPlayers);
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw new UncheckedIOException(new IOException("Corrupted arena record.", e));
+		}
+	}
+
+	private static void writeLocation(DataOutputStream out, ArenaData.StoredLocation location) throws IOException {
+		out.writeBoolean(location != null);
+		if (location == null) return;
+		writeString(out, location.world());
+		out.writeDouble(location.x());
+		out.writeDouble(location.y());
+		out.writeDouble(location.z());
+		out.writeFloat(location.yaw());
+		out.writeFloat(location.pitch());
+	}
+
+	private static ArenaData.StoredLocation readLocation(ByteBuffer in) {
+		if (in.get() == 0) return null;
+		return new ArenaData.StoredLocation(readString(in), in.getDouble(), in.getDouble(), in.getDouble(), in.getFloat(), in.getFloat());
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+		out.writeShort(utf8.length);
+		out.write(utf8);
+	}
+
+	private static String readString(ByteBuffer in) {
+		byte[] utf8 = new byte[in.getShort() & 0xFFFF];
+		in.get(utf8);
+		return new String(utf8, StandardCharsets.UTF_8);
+	}
+}
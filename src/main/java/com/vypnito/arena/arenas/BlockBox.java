@@ -0,0 +1,235 @@
+package com.vypnito.arena.arenas;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.UUID;
+
+/**
+ * Immutable axis-aligned block region: a world UUID plus inclusive integer bounds.
+ * Computed once when an arena's positions change, so bounds checks need no
+ * min/max work and no Location allocations.
+ */
+public final class BlockBox {
+
+	private final UUID worldId;
+	private final int minX, minY, minZ;
+	private final int maxX, maxY, maxZ;
+
+	/**
+	 * Callback for chunk-range iteration.
+	 */
+	@FunctionalInterface
+	public interface ChunkConsumer {
+		/**
+		 * @param chunkX The chunk X coordinate.
+		 * @param chunkZ The chunk Z coordinate.
+		 */
+		void accept(int chunkX, int chunkZ);
+	}
+
+	/**
+	 * Callback for block iteration.
+	 */
+	@FunctionalInterface
+	public interface BlockConsumer {
+		/**
+		 * @param x The block X coordinate.
+		 * @param y The block Y coordinate.
+		 * @param z The block Z coordinate.
+		 */
+		void accept(int x, int y, int z);
+	}
+
+	/**
+	 * Creates a box from two corners in any order.
+	 * @param worldId The UUID of the world the box is in.
+	 * @param x1 X of the first corner.
+	 * @param y1 Y of the first corner.
+	 * @param z1 Z of the first corner.
+	 * @param x2 X of the second corner.
+	 * @param y2 Y of the second corner.
+	 * @param z2 Z of the second corner.
+	 */
+	public BlockBox(UUID worldId, int x1, int y1, int z1, int x2, int y2, int z2) {
+		this.worldId = worldId;
+		this.minX = Math.min(x1, x2);
+		this.minY = Math.min(y1, y2);
+		this.minZ = Math.min(z1, z2);
+		this.maxX = Math.max(x1, x2);
+		this.maxY = Math.max(y1, y2);
+		this.maxZ = Math.max(z1, z2);
+	}
+
+	/**
+	 * Creates a box from two block locations.
+	 * @param pos1 The first corner.
+	 * @param pos2 The second corner.
+	 * @return The box, or null if a corner is missing or the corners are not in the same loaded world.
+	 */
+	public static BlockBox of(Location pos1, Location pos2) {
+		if (pos1 == null || pos2 == null) return null;
+		World world = pos1.getWorld();
+		if (world == null || !world.equals(pos2.getWorld())) return null;
+		return new BlockBox(world.getUID(),
+				pos1.getBlockX(), pos1.getBlockY(), pos1.getBlockZ(),
+				pos2.getBlockX(), pos2.getBlockY(), pos2.getBlockZ());
+	}
+
+	public UUID getWorldId() { return worldId; }
+	public int getMinX() { return minX; }
+	public int getMinY() { return minY; }
+	public int getMinZ() { return minZ; }
+	public int getMaxX() { return maxX; }
+	public int getMaxY() { return maxY; }
+	public int getMaxZ() { return maxZ; }
+
+	public int getMinChunkX() { return minX >> 4; }
+	public int getMinChunkZ() { return minZ >> 4; }
+	public int getMaxChunkX() { return maxX >> 4; }
+	public int getMaxChunkZ() { return maxZ >> 4; }
+	public int getCenterChunkX() { return (getMinChunkX() + getMaxChunkX()) >> 1; }
+	public int getCenterChunkZ() { return (getMinChunkZ() + getMaxChunkZ()) >> 1; }
+
+	/**
+	 * Checks whether the block coordinates lie inside the box (world not checked).
+	 * @param x The block X coordinate.
+	 * @param y The block Y coordinate.
+	 * @param z The block Z coordinate.
+	 * @return True if the block is inside the bounds.
+	 */
+	public boolean contains(int x, int y, int z) {
+		return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+	}
+
+	/**
+	 * Checks whether the block coordinates in the given world lie inside the box.
+	 * @param worldId The UUID of the block's world.
+	 * @param x The block X coordinate.
+	 * @param y The block Y coordinate.
+	 * @param z The block Z coordinate.
+	 * @return True if the block is in this box's world and inside its bounds.
+	 */
+	public boolean contains(UUID worldId, int x, int y, int z) {
+		return this.worldId.equals(worldId) && contains(x, y, z);
+	}
+
+	/**
+	 * Checks whether the block location lies inside the box.
+	 * @param location The location to check.
+	 * @return True if the location is in this box's world and inside its bounds.
+	 */
+	public boolean contains(Location location) {
+		World world = location.getWorld();
+		return world != null && contains(world.getUID(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+	}
+
+	/**
+	 * Checks whether the block coordinates lie on the outer shell of the box (world not checked).
+	 * @param x The block X coordinate.
+	 * @param y The block Y coordinate.
+	 * @param z The block Z coordinate.
+	 * @return True if the block is inside the bounds and on one of the six faces.
+	 */
+	public boolean onShell(int x, int y, int z) {
+		return contains(x, y, z) &&
+				(x == minX || x == maxX || y == minY || y == maxY || z == minZ || z == maxZ);
+	}
+
+	public int sizeX() { return maxX - minX + 1; }
+	public int sizeY() { return maxY - minY + 1; }
+	public int sizeZ() { return maxZ - minZ + 1; }
+
+	/**
+	 * @return The number of blocks inside the box.
+	 */
+	public long volume() {
+		return (long) sizeX() * sizeY() * sizeZ();
+	}
+
+	/**
+	 * @return The number of blocks on the outer shell of the box.
+	 */
+	public long shellSize() {
+		long interior = (long) Math.max(0, sizeX() - 2) * Math.max(0, sizeY() - 2) * Math.max(0, sizeZ() - 2);
+		return volume() - interior;
+	}
+
+	/**
+	 * Calls the consumer for every chunk the box overlaps.
+	 * @param consumer The callback receiving chunk coordinates.
+	 */
+	public void forEachChunk(ChunkConsumer consumer) {
+		for (int cx = getMinChunkX(); cx <= getMaxChunkX(); cx++) {
+			for (int cz = getMinChunkZ(); cz <= getMaxChunkZ(); cz++) {
+				consumer.accept(cx, cz);
+			}
+		}
+	}
+
+	/**
+	 * Calls the consumer for every block on the outer shell of the box, exactly once each.
+	 * Only the six faces are enumerated, so the cost is O(surface) rather than O(volume).
+	 * Blocks are visited layer by layer: the bottom and top faces first, then the four side walls
+	 * of each layer in between, with edges and corners assigned to a single face.
+	 * @param consumer The callback receiving block coordinates.
+	 */
+	public void forEachShellBlock(BlockConsumer consumer) {
+		// Bottom and top faces cover the full XZ layer
+		for (int y = minY; y <= maxY; y += Math.max(1, maxY - minY)) {
+			for (int x = minX; x <= maxX; x++) {
+				for (int z = minZ; z <= maxZ; z++) {
+					consumer.accept(x, y, z);
+				}
+			}
+		}
+		// Layers in between only contribute their outline
+		for (int y = minY + 1; y < maxY; y++) {
+			for (int x = minX; x <= maxX; x++) {
+				consumer.accept(x, y, minZ);
+				if (maxZ != minZ) consumer.accept(x, y, maxZ);
+			}
+			for (int z = minZ + 1; z < maxZ; z++) {
+				consumer.accept(minX, y, z);
+				if (maxX != minX) consumer.accept(maxX, y, z);
+			}
+		}
+	}
+
+	/**
+	 * Collects the shell blocks of the box as packed {@link BlockKey}s, in {@link #forEachShellBlock} order.
+	 * @return The packed shell positions.
+	 */
+	public long[] shellKeys() {
+		long[] keys = new long[(int) shellSize()];
+		int[] count = {0};
+		forEachShellBlock((x, y, z) -> keys[count[0]++] = BlockKey.pack(x, y, z));
+		return keys;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof BlockBox other)) return false;
+		return minX == other.minX && minY == other.minY && minZ == other.minZ &&
+				maxX == other.maxX && maxY == other.maxY && maxZ == other.maxZ &&
+				worldId.equals(other.worldId);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = worldId.hashCode();
+		result = 31 * result + minX;
+		result = 31 * result + minY;
+		result = 31 * result + minZ;
+		result = 31 * result + maxX;
+		result = 31 * result + maxY;
+		result = 31 * result + maxZ;
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "BlockBox{" + minX + "," + minY + "," + minZ + " -> " + maxX + "," + maxY + "," + maxZ + "}";
+	}
+}
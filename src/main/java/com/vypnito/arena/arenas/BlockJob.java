@@ -0,0 +1,182 @@
+package com.vypnito.arena.arenas;
+
+import org.bukkit.World;
+
+import java.util.function.Consumer;
+
+/**
+ * A queued batch of block changes that is applied incrementally by the {@link BlockJobQueue},
+ * a few blocks at a time, so large walls never have to be applied within a single tick.
+ */
+public abstract class BlockJob {
+
+	private Consumer<BlockJob> progressListener;
+	private Runnable completionListener;
+	private Runnable cancellationListener;
+	private int processed = 0;
+	private boolean cancelled = false;
+	private boolean finished = false;
+	private World anchorWorld; // Where the job's blocks are, so region-threaded servers apply it on the owning region
+	private int anchorChunkX;
+	private int anchorChunkZ;
+
+	/**
+	 * Applies the next block change of this job.
+	 * @return True if a change was processed, false if the job has nothing left to do.
+	 */
+	protected abstract boolean applyNext();
+
+	/**
+	 * @return The total number of block changes this job consists of.
+	 */
+	public abstract int getTotal();
+
+	/**
+	 * Called once when the job has processed all its changes, before the completion listener.
+	 */
+	protected void onFinished() {
+	}
+
+	/**
+	 * Called once when the job is cancelled before it finished, e.g. to release resources.
+	 */
+	protected void onCancelled() {
+	}
+
+	/**
+	 * Anchors the job at a chunk. On Folia the job is applied by the region owning that chunk;
+	 * jobs without an anchor run on the global region.
+	 * @param world The world of the job's blocks.
+	 * @param chunkX The chunk X coordinate.
+	 * @param chunkZ The chunk Z coordinate.
+	 */
+	protected final void anchorAt(World world, int chunkX, int chunkZ) {
+		this.anchorWorld = world;
+		this.anchorChunkX = chunkX;
+		this.anchorChunkZ = chunkZ;
+	}
+
+	/**
+	 * Anchors the job at the center chunk of a region, see {@link #anchorAt(World, int, int)}.
+	 * @param world The world of the job's blocks, or null to leave the job unanchored.
+	 * @param region The region the job's blocks lie in, or null to leave the job unanchored.
+	 */
+	protected final void anchorAt(World world, BlockBox region) {
+		if (world == null || region == null) return;
+		anchorAt(world, region.getCenterChunkX(), region.getCenterChunkZ());
+	}
+
+	World getAnchorWorld() {
+		return anchorWorld;
+	}
+
+	int getAnchorChunkX() {
+		return anchorChunkX;
+	}
+
+	int getAnchorChunkZ() {
+		return anchorChunkZ;
+	}
+
+	/**
+	 * Registers a callback invoked once per tick in which the job made progress.
+	 * @param listener The callback, receiving this job.
+	 * @return This job, for chaining.
+	 */
+	public BlockJob onProgress(Consumer<BlockJob> listener) {
+		this.progressListener = listener;
+		return this;
+	}
+
+	/**
+	 * Registers a callback invoked once when the job has finished (not when it is cancelled).
+	 * @param listener The callback.
+	 * @return This job, for chaining.
+	 */
+	public BlockJob onComplete(Runnable listener) {
+		this.completionListener = listener;
+		return this;
+	}
+
+	/**
+	 * Registers a callback invoked once when the job is cancelled before it finished.
+	 * @param listener The callback.
+	 * @return This job, for chaining.
+	 */
+	public BlockJob onCancel(Runnable listener) {
+		this.cancellationListener = listener;
+		return this;
+	}
+
+	/**
+	 * Cancels the job. Changes already applied stay applied; the completion callback is not run.
+	 */
+	public void cancel() {
+		if (cancelled || finished) return;
+		cancelled = true;
+		onCancelled();
+		if (cancellationListener != null) {
+			cancellationListener.run();
+		}
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * @return The number of block changes processed so far.
+	 */
+	public int getProcessed() {
+		return processed;
+	}
+
+	/**
+	 * @return The fraction of the job already processed, between 0 and 1.
+	 */
+	public double getProgress() {
+		int total = getTotal();
+		return total == 0 ? 1.0 : Math.min(1.0, (double) processed / total);
+	}
+
+	/**
+	 * Processes one step of the job.
+	 * @return True if the job still has work left afterwards.
+	 */
+	boolean step() {
+		if (cancelled || finished) return false;
+		if (applyNext()) {
+			processed++;
+			return true;
+		}
+		finish();
+		return false;
+	}
+
+	/**
+	 * Applies every remaining change of the job immediately.
+	 */
+	public void runToCompletion() {
+		while (step()) {
+			// Keep applying until the job is done or cancelled
+		}
+	}
+
+	void fireProgress() {
+		if (progressListener != null && !cancelled && !finished) {
+			progressListener.accept(this);
+		}
+	}
+
+	private void finish() {
+		finished = true;
+		onFinished();
+		if (completionListener != null) {
+			completionListener.run();
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package com.vypnito.arena.arenas;
+
+import com.vypnito.arena.TaskScheduler;
+import com.vypnito.arena.arena;
+import org.bukkit.World;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Applies queued {@link BlockJob}s on the main thread under a per-tick budget.
+ * Each tick at most {@code arena-settings.wall-blocks-per-tick} block changes are applied,
+ * and no more than {@code arena-settings.wall-micros-per-tick} microseconds are spent.
+ * The repeating task only runs while there is queued work.
+ * On Folia, jobs are queued per region: each anchored job is applied by the region owning its anchor chunk,
+ * with the budget applying to every region separately. Blocks outside that region are not owned by it,
+ * which is one reason the plugin does not declare Folia support yet.
+ */
+public class BlockJobQueue {
+
+	private final arena plugin;
+	private final Map<Object, Lane> lanes = new ConcurrentHashMap<>(); // Single lane on Paper, one per anchor chunk on Folia
+	private int maxBlocksPerTick = 2000;
+	private long maxNanosPerTick = 2_000_000L;
+
+	// Anchor of a lane on Folia; jobs anchored in the same chunk share a lane
+	private record LaneKey(UUID worldId, long chunkKey) {}
+
+	private static final Object GLOBAL_LANE = new Object();
+
+	/**
+	 * Constructor for BlockJobQueue.
+	 * @param plugin The main plugin instance.
+	 */
+	public BlockJobQueue(arena plugin) {
+		this.plugin = plugin;
+		loadSettings();
+	}
+
+	/**
+	 * (Re)loads the per-tick budgets from config.yml.
+	 */
+	public void loadSettings() {
+		maxBlocksPerTick = Math.max(1, plugin.getConfig().getInt("arena-settings.wall-blocks-per-tick", 2000));
+		maxNanosPerTick = Math.max(50L, plugin.getConfig().getLong("arena-settings.wall-micros-per-tick", 2000L)) * 1000L;
+	}
+
+	/**
+	 * Queues a job. It starts being applied on the next tick.
+	 * @param job The job to queue.
+	 */
+	public void submit(BlockJob job) {
+		World world = job.getAnchorWorld();
+		Object key = TaskScheduler.isFolia() && world != null
+				? new LaneKey(world.getUID(), ArenaSpatialIndex.chunkKey(job.getAnchorChunkX(), job.getAnchorChunkZ()))
+				: GLOBAL_LANE;
+		lanes.computeIfAbsent(key, k -> new Lane(k, world, job.getAnchorChunkX(), job.getAnchorChunkZ())).submit(job);
+	}
+
+	/**
+	 * Applies every queued job immediately. Used on shutdown so no change is left half-applied.
+	 */
+	public void flush() {
+		for (Lane lane : lanes.values()) {
+			lane.flush();
+		}
+	}
+
+	/**
+	 * Jobs applied by one scheduler: the main thread on Paper, or the region owning the lane's chunk on Folia.
+	 */
+	private final class Lane {
+		private final Object key;
+		private final World world; // Null for the global lane
+		private final int chunkX;
+		private final int chunkZ;
+		private final Deque<BlockJob> jobs = new ArrayDeque<>();
+		private TaskScheduler.Task task;
+
+		private Lane(Object key, World world, int chunkX, int chunkZ) {
+			this.key = key;
+			this.world = key == GLOBAL_LANE ? null : world;
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
+		}
+
+		private synchronized void submit(BlockJob job) {
+			jobs.add(job);
+			if (task == null) {
+				TaskScheduler scheduler = plugin.getTaskScheduler();
+				task = world == null
+						? scheduler.runGlobalTimer(this::tick, 1L, 1L)
+						: scheduler.runAtChunkTimer(world, chunkX, chunkZ, this::tick, 1L, 1L);
+			}
+		}
+
+		private synchronized void flush() {
+			BlockJob job;
+			while ((job = jobs.poll()) != null) {
+				job.runToCompletion();
+			}
+			stop();
+		}
+
+		private synchronized void tick() {
+			long deadline = System.nanoTime() + maxNanosPerTick;
+			int budget = maxBlocksPerTick;
+			BlockJob advanced = null;
+
+			while (budget > 0 && !jobs.isEmpty()) {
+				BlockJob job = jobs.peek();
+				if (job != advanced) {
+					if (advanced != null) advanced.fireProgress();
+					advanced = job;
+				}
+				if (!job.step()) {
+					jobs.poll(); // Finished or cancelled
+					continue;
+				}
+				budget--;
+				if (System.nanoTime() >= deadline) break;
+			}
+			if (advanced != null) advanced.fireProgress();
+
+			if (jobs.isEmpty()) {
+				stop();
+			}
+		}
+
+		private void stop() {
+			if (task != null) {
+				task.cancel();
+				task = null;
+			}
+			if (key != GLOBAL_LANE) {
+				lanes.remove(key, this);
+			}
+		}
+	}
+}
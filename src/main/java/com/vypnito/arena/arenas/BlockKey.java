@@ -0,0 +1,27 @@
+package com.vypnito.arena.arenas;
+
+/**
+ * Packs block coordinates into a single long, using the same layout as Minecraft's block positions
+ * (26 bits X, 26 bits Z, 12 bits Y). Lets block positions be stored and compared without Location objects.
+ */
+public final class BlockKey {
+
+	private BlockKey() {
+	}
+
+	public static long pack(int x, int y, int z) {
+		return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+	}
+
+	public static int x(long key) {
+		return (int) (key >> 38);
+	}
+
+	public static int y(long key) {
+		return (int) (key << 52 >> 52);
+	}
+
+	public static int z(long key) {
+		return (int) (key << 26 >> 38);
+	}
+}
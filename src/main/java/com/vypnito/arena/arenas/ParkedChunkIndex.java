@@ -0,0 +1,68 @@
+package com.vypnito.arena.arenas;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Index of the chunks holding parked restores, mapping each chunk to the arenas waiting for it to load.
+ * Chunk loads are frequent and parked restores are rare, so a load without parked restores
+ * costs a single map lookup instead of a pass over every arena.
+ * Must only be accessed from the main server thread.
+ */
+public class ParkedChunkIndex {
+
+	private final Map<Key, Set<Arenas>> chunks = new HashMap<>();
+
+	private record Key(UUID worldId, long chunkKey) {}
+
+	/**
+	 * Registers an arena as waiting for a chunk.
+	 * @param worldId The UUID of the chunk's world.
+	 * @param chunkKey The packed chunk key, see {@link ArenaSpatialIndex#chunkKey(int, int)}.
+	 * @param arena The arena with parked restores in the chunk.
+	 */
+	void add(UUID worldId, long chunkKey, Arenas arena) {
+		chunks.computeIfAbsent(new Key(worldId, chunkKey), k -> new LinkedHashSet<>(2)).add(arena);
+	}
+
+	/**
+	 * Removes an arena from a chunk once its parked restores were taken.
+	 * @param worldId The UUID of the chunk's world.
+	 * @param chunkKey The packed chunk key.
+	 * @param arena The arena.
+	 */
+	void remove(UUID worldId, long chunkKey, Arenas arena) {
+		Key key = new Key(worldId, chunkKey);
+		Set<Arenas> arenas = chunks.get(key);
+		if (arenas == null) return;
+		arenas.remove(arena);
+		if (arenas.isEmpty()) {
+			chunks.remove(key);
+		}
+	}
+
+	/**
+	 * Removes an arena from every chunk, e.g. when it is unregistered.
+	 * @param arena The arena.
+	 */
+	public void removeAll(Arenas arena) {
+		chunks.values().removeIf(arenas -> arenas.remove(arena) && arenas.isEmpty());
+	}
+
+	/**
+	 * Gets the arenas waiting for a chunk. The result is a copy, so parked restores can be taken while iterating.
+	 * @param worldId The UUID of the chunk's world.
+	 * @param chunkKey The packed chunk key.
+	 * @return The arenas, empty if nothing is parked in the chunk.
+	 */
+	public List<Arenas> get(UUID worldId, long chunkKey) {
+		if (chunks.isEmpty()) return List.of();
+		Set<Arenas> arenas = chunks.get(new Key(worldId, chunkKey));
+		return arenas == null ? List.of() : new ArrayList<>(arenas);
+	}
+}
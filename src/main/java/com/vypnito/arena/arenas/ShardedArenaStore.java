@@ -0,0 +1,123 @@
+package com.vypnito.arena.arenas;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stores every arena in its own file, {@code arenas/<name>.yml}, using the same layout as an arena's
+ * section in arenas.yml. A save only rewrites (or deletes) the files of the arenas that changed,
+ * each replaced atomically, and loading parses the files in parallel on the common fork-join pool.
+ */
+public class ShardedArenaStore implements ArenaStore {
+
+	private static final String EXTENSION = ".yml";
+
+	private final File folder;
+	private final Logger logger;
+
+	/**
+	 * Constructor for ShardedArenaStore.
+	 * @param folder The folder holding one file per arena.
+	 * @param logger Logger for arena files that cannot be read.
+	 */
+	public ShardedArenaStore(File folder, Logger logger) {
+		this.folder = folder;
+		this.logger = logger;
+	}
+
+	@Override
+	public boolean exists() {
+		return folder.isDirectory();
+	}
+
+	@Override
+	public LoadResult load() throws IOException {
+		File[] files = folder.listFiles((dir, fileName) -> fileName.endsWith(EXTENSION));
+		if (files == null) return new LoadResult(List.of(), Set.of());
+		Arrays.sort(files, Comparator.comparing(File::getName));
+		// Arenas whose file cannot be read are reported; their file is left alone until the arena is saved again
+		Set<String> failed = ConcurrentHashMap.newKeySet();
+		List<ArenaData> arenas = Arrays.stream(files).parallel()
+				.map(file -> read(file, failed))
+				.filter(Objects::nonNull)
+				.collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+		// On case-sensitive file systems two files may differ only in case; the first one (by file name) wins
+		Set<String> nameKeys = new HashSet<>();
+		arenas.removeIf(data -> {
+			if (nameKeys.add(ArenaData.nameKey(data.name()))) return false;
+			failed.add(data.name());
+			logger.warning("Error loading arena '" + data.name() + "': another arena has the same name in a different case.");
+			return true;
+		});
+		return new LoadResult(arenas, failed);
+	}
+
+	@Override
+	public void write(List<ArenaData> arenas, Set<String> changed) throws IOException {
+		if (!folder.exists()) {
+			folder.mkdirs();
+		}
+		Map<String, ArenaData> byName = new HashMap<>();
+		for (ArenaData data : arenas) {
+			if (changed.contains(data.name())) {
+				byName.put(data.name(), data);
+			}
+		}
+		for (String name : changed) {
+			File file = fileOf(name);
+			ArenaData data = byName.get(name);
+			if (data == null) {
+				Files.deleteIfExists(file.toPath()); // Deleted arena
+				continue;
+			}
+			YamlConfiguration config = new YamlConfiguration();
+			YamlArenaStore.write(config, data);
+			ArenaStore.replaceAtomically(file, config.saveToString().getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	@Override
+	public File getLocation() {
+		return folder;
+	}
+
+	@Override
+	public String describe() {
+		return folder.getName() + "/";
+	}
+
+	private File fileOf(String arenaName) {
+		// Names are validated when arenas are created or loaded, so they never leave the folder
+		if (!ArenaData.isValidName(arenaName)) {
+			throw new IllegalArgumentException("Invalid arena name '" + arenaName + "'.");
+		}
+		return new File(folder, arenaName + EXTENSION);
+	}
+
+	private ArenaData read(File file, Set<String> failed) {
+		String name = file.getName().substring(0, file.getName().length() - EXTENSION.length());
+		try {
+			return YamlArenaStore.read(name, YamlArenaStore.parseRaw(Files.readString(file.toPath(), StandardCharsets.UTF_8)));
+		} catch (IOException | RuntimeException e) {
+			failed.add(name);
+			logger.log(Level.WARNING, "Error loading arena '" + name + "' from " + file.getName() + ": " + e.getMessage(), e);
+			return null;
+		}
+	}
+}
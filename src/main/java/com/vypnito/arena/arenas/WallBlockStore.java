@@ -0,0 +1,219 @@
+package com.vypnito.arena.arenas;
+
+import org.bukkit.block.data.BlockData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact store of the original blocks replaced by an arena wall.
+ * Positions are kept as arena-relative linear indices in an open-addressing int table,
+ * and block data as indices into a small per-arena palette of interned {@link BlockData},
+ * so a sealed arena holds a few primitive arrays instead of one Location and map entry per block.
+ * The first recorded data for a position wins. Must only be accessed from the main server thread.
+ */
+public final class WallBlockStore {
+
+	private static final int EMPTY = -1;
+	private static final int DELETED = -2;
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final BlockBox region;
+	private int[] keys;
+	private short[] values; // Palette indices
+	private int size = 0;
+	private int used = 0; // Live entries plus tombstones
+
+	private final List<BlockData> palette = new ArrayList<>();
+	private final Map<BlockData, Short> paletteIndex = new HashMap<>();
+
+	/**
+	 * Creates an empty store for the given region.
+	 * @param region The arena region; all stored positions must lie inside it.
+	 * @throws IllegalArgumentException If the region has more than {@link Integer#MAX_VALUE} blocks.
+	 */
+	public WallBlockStore(BlockBox region) {
+		if (region.volume() > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Arena region is too large for a wall store: " + region);
+		}
+		this.region = region;
+		this.keys = new int[INITIAL_CAPACITY];
+		this.values = new short[INITIAL_CAPACITY];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	public BlockBox getRegion() {
+		return region;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Records the original data of a position, unless the position is already recorded.
+	 * @return True if the data was recorded, false if the position already had an entry.
+	 */
+	public boolean putIfAbsent(int x, int y, int z, BlockData data) {
+		int key = toKey(x, y, z);
+		if ((used + 1) * 2 > keys.length) {
+			rehash(size * 4 > keys.length ? keys.length * 2 : keys.length);
+		}
+		int mask = keys.length - 1;
+		int slot = -1;
+		for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+			int k = keys[i];
+			if (k == key) return false;
+			if (k == DELETED && slot < 0) slot = i;
+			if (k == EMPTY) {
+				if (slot < 0) {
+					slot = i;
+					used++;
+				}
+				break;
+			}
+		}
+		keys[slot] = key;
+		values[slot] = intern(data);
+		size++;
+		return true;
+	}
+
+	/**
+	 * @return True if the position is recorded.
+	 */
+	public boolean contains(int x, int y, int z) {
+		return region.contains(x, y, z) && find(toKey(x, y, z)) >= 0;
+	}
+
+	/**
+	 * Removes a recorded position.
+	 * @param key The position key, as returned by {@link #keysInChunkOrder()}.
+	 * @return The original data of the position, or null if it was not recorded.
+	 */
+	public BlockData remove(int key) {
+		int slot = find(key);
+		if (slot < 0) return null;
+		keys[slot] = DELETED;
+		size--;
+		BlockData data = palette.get(values[slot]);
+		if (size == 0) clear();
+		return data;
+	}
+
+	/**
+	 * Gets the recorded data of a position.
+	 * @param key The position key.
+	 * @return The original data, or null if the position is not recorded.
+	 */
+	public BlockData get(int key) {
+		int slot = find(key);
+		return slot < 0 ? null : palette.get(values[slot]);
+	}
+
+	/**
+	 * Returns the keys of all recorded positions, sorted so that positions of the same chunk are adjacent.
+	 * @return The sorted position keys.
+	 */
+	public int[] keysInChunkOrder() {
+		long[] sortable = new long[size];
+		int n = 0;
+		int chunksZ = region.getMaxChunkZ() - region.getMinChunkZ() + 1;
+		for (int key : keys) {
+			if (key < 0) continue;
+			long chunkIndex = (long) (x(key) >> 4) - region.getMinChunkX();
+			chunkIndex = chunkIndex * chunksZ + ((z(key) >> 4) - region.getMinChunkZ());
+			sortable[n++] = (chunkIndex << 32) | (key & 0xFFFFFFFFL);
+		}
+		Arrays.sort(sortable, 0, n);
+		int[] result = new int[n];
+		for (int i = 0; i < n; i++) {
+			result[i] = (int) sortable[i];
+		}
+		return result;
+	}
+
+	/**
+	 * Removes every entry and the palette.
+	 */
+	public void clear() {
+		keys = new int[INITIAL_CAPACITY];
+		values = new short[INITIAL_CAPACITY];
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+		used = 0;
+		palette.clear();
+		paletteIndex.clear();
+	}
+
+	// --- Key encoding: linear index relative to the region's minimum corner ---
+
+	public int toKey(int x, int y, int z) {
+		return ((y - region.getMinY()) * region.sizeZ() + (z - region.getMinZ())) * region.sizeX() + (x - region.getMinX());
+	}
+
+	public int x(int key) {
+		return region.getMinX() + key % region.sizeX();
+	}
+
+	public int y(int key) {
+		return region.getMinY() + key / region.sizeX() / region.sizeZ();
+	}
+
+	public int z(int key) {
+		return region.getMinZ() + (key / region.sizeX()) % region.sizeZ();
+	}
+
+	// --- Internals ---
+
+	private short intern(BlockData data) {
+		Short index = paletteIndex.get(data);
+		if (index != null) return index;
+		if (palette.size() > Short.MAX_VALUE) {
+			throw new IllegalStateException("Too many distinct block states in arena wall of " + region);
+		}
+		short newIndex = (short) palette.size();
+		palette.add(data);
+		paletteIndex.put(data, newIndex);
+		return newIndex;
+	}
+
+	private int find(int key) {
+		int mask = keys.length - 1;
+		for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+			int k = keys[i];
+			if (k == key) return i;
+			if (k == EMPTY) return -1;
+		}
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		short[] oldValues = values;
+		keys = new int[capacity];
+		values = new short[capacity];
+		Arrays.fill(keys, EMPTY);
+		int mask = capacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			int key = oldKeys[i];
+			if (key < 0) continue;
+			int slot = mix(key) & mask;
+			while (keys[slot] != EMPTY) slot = (slot + 1) & mask;
+			keys[slot] = key;
+			values[slot] = oldValues[i];
+		}
+		used = size;
+	}
+
+	private static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,214 @@
+package com.vypnito.arena.arenas;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only, memory-mapped journal of the original blocks replaced by an arena wall
+ * and of the interior blocks changed during a match.
+ * Every block recorded in the {@link WallBlockStore}s is also appended here, so if the server
+ * stops without restoring the arena, the originals can be put back on the next startup.
+ * The journal is reset once the wall and the interior have been fully restored, and compacted to the blocks
+ * still waiting to be restored whenever a new wall starts. Must only be used from the main server thread.
+ *
+ * Layout: a 32 byte header (magic, world UUID, end offset of the committed records), followed by records.
+ * A state record (1) assigns an id to a block data string; a block record (2) stores x, y, z and a state id.
+ */
+public final class WallJournal {
+
+	private static final int MAGIC = 0x41574A31; // "AWJ1"
+	private static final int HEADER_SIZE = 32;
+	private static final int END_OFFSET = 20;
+	private static final int INITIAL_MAP_SIZE = 64 * 1024;
+	private static final byte RECORD_STATE = 1;
+	private static final byte RECORD_BLOCK = 2;
+
+	private final File file;
+	private final Logger logger;
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+	private int end = HEADER_SIZE;
+	private UUID worldId; // World of the recorded blocks, null while the journal is empty
+	private final Map<BlockData, Integer> stateIds = new HashMap<>();
+	private boolean failed = false; // Journaling is disabled for this arena after an I/O error
+
+	/**
+	 * Constructor for WallJournal. The file is only created when the first block is recorded.
+	 * @param file The journal file.
+	 * @param logger The logger used to report I/O errors.
+	 */
+	public WallJournal(File file, Logger logger) {
+		this.file = file;
+		this.logger = logger;
+	}
+
+	/**
+	 * Records the original data of a block replaced by the wall.
+	 * @param world The world of the block.
+	 * @param x The block X coordinate.
+	 * @param y The block Y coordinate.
+	 * @param z The block Z coordinate.
+	 * @param data The original block data.
+	 */
+	public void append(World world, int x, int y, int z, BlockData data) {
+		if (failed) return;
+		try {
+			open();
+			if (worldId == null) {
+				worldId = world.getUID();
+				buffer.putLong(4, worldId.getMostSignificantBits());
+				buffer.putLong(12, worldId.getLeastSignificantBits());
+			}
+			Integer stateId = stateIds.get(data);
+			if (stateId == null) {
+				stateId = stateIds.size();
+				byte[] encoded = data.getAsString().getBytes(StandardCharsets.UTF_8);
+				ensureCapacity(1 + 4 + 2 + encoded.length);
+				buffer.put(end, RECORD_STATE);
+				buffer.putInt(end + 1, stateId);
+				buffer.putShort(end + 5, (short) encoded.length);
+				buffer.put(end + 7, encoded);
+				end += 7 + encoded.length;
+				stateIds.put(data, stateId);
+			}
+			ensureCapacity(1 + 4 * 4);
+			buffer.put(end, RECORD_BLOCK);
+			buffer.putInt(end + 1, x);
+			buffer.putInt(end + 5, y);
+			buffer.putInt(end + 9, z);
+			buffer.putInt(end + 13, stateId);
+			end += 17;
+			// Committing the end offset last means a half-written record is never replayed
+			buffer.putInt(END_OFFSET, end);
+		} catch (IOException e) {
+			failed = true;
+			logger.log(Level.SEVERE, "Error writing wall journal " + file.getName() + ", journaling disabled for this arena: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Marks every recorded block as restored. Called once the wall has been fully removed,
+	 * or before the blocks still outstanding are appended again when a new wall starts.
+	 */
+	public void reset() {
+		end = HEADER_SIZE;
+		worldId = null;
+		stateIds.clear();
+		if (buffer != null) {
+			buffer.putInt(END_OFFSET, end);
+		}
+	}
+
+	/**
+	 * Flushes and closes the journal file. An empty journal is deleted.
+	 */
+	public void close() {
+		if (channel == null) return;
+		try {
+			buffer.force();
+			channel.close();
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Error closing wall journal " + file.getName() + ": " + e.getMessage(), e);
+		}
+		channel = null;
+		buffer = null;
+		if (end == HEADER_SIZE) {
+			file.delete();
+		}
+	}
+
+	private void open() throws IOException {
+		if (channel != null) return;
+		File parent = file.getParentFile();
+		if (parent != null && !parent.exists()) {
+			parent.mkdirs();
+		}
+		// Anything still in the file was replayed on startup, so the journal starts empty
+		channel = new RandomAccessFile(file, "rw").getChannel();
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_MAP_SIZE);
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(END_OFFSET, end);
+	}
+
+	private void ensureCapacity(int recordSize) throws IOException {
+		if (end + recordSize <= buffer.capacity()) return;
+		long size = buffer.capacity();
+		while (size < end + recordSize) size *= 2;
+		buffer.force();
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+	}
+
+	/**
+	 * Restores the blocks recorded in a journal left over from a previous run.
+	 * The first record of a position wins, like in the {@link WallBlockStore}.
+	 * @param file The journal file.
+	 * @param logger The logger used to report problems.
+	 * @return The number of restored blocks, or -1 if the journal could not be replayed yet (e.g. its world is not loaded).
+	 */
+	public static int replay(File file, Logger logger) {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel in = raf.getChannel()) {
+			if (in.size() < HEADER_SIZE) return 0;
+			MappedByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+			if (data.getInt(0) != MAGIC) {
+				logger.warning("Ignoring wall journal " + file.getName() + ": unknown format.");
+				return 0;
+			}
+			int committed = Math.min(data.getInt(END_OFFSET), data.capacity());
+			if (committed <= HEADER_SIZE) return 0;
+			World world = Bukkit.getWorld(new UUID(data.getLong(4), data.getLong(12)));
+			if (world == null) return -1;
+
+			Map<Integer, BlockData> states = new HashMap<>();
+			Set<Long> restored = new HashSet<>();
+			int pos = HEADER_SIZE;
+			int count = 0;
+			while (pos < committed) {
+				byte type = data.get(pos);
+				if (type == RECORD_STATE) {
+					int id = data.getInt(pos + 1);
+					int length = data.getShort(pos + 5) & 0xFFFF;
+					byte[] encoded = new byte[length];
+					data.get(pos + 7, encoded);
+					try {
+						states.put(id, Bukkit.createBlockData(new String(encoded, StandardCharsets.UTF_8)));
+					} catch (IllegalArgumentException e) {
+						logger.warning("Skipping unknown block state in wall journal " + file.getName() + ": " + e.getMessage());
+					}
+					pos += 7 + length;
+				} else if (type == RECORD_BLOCK) {
+					int x = data.getInt(pos + 1);
+					int y = data.getInt(pos + 5);
+					int z = data.getInt(pos + 9);
+					BlockData state = states.get(data.getInt(pos + 13));
+					if (state != null && restored.add(BlockKey.pack(x, y, z))) {
+						world.getBlockAt(x, y, z).setBlockData(state);
+						count++;
+					}
+					pos += 17;
+				} else {
+					logger.warning("Wall journal " + file.getName() + " is corrupted, stopped replaying after " + count + " blocks.");
+					break;
+				}
+			}
+			return count;
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, "Error replaying wall journal " + file.getName() + ": " + e.getMessage(), e);
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.vypnito.arena.arenas;
+
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+
+import java.util.BitSet;
+
+/**
+ * A precomputed list of wall changes for an arena: every shell position of the wall template,
+ * the original block data of those that take part in the wall (null for blocks the wall keeps),
+ * and whether it must be replaced by the wall material.
+ * Computed off the main thread from chunk snapshots by the {@link WallPlanner}.
+ */
+public final class WallPlan {
+
+	private final BlockBox region;
+	private final Material wallMaterial;
+	private final long createdAt;
+	private final long[] positions; // Packed with BlockKey
+	private final BlockData[] originals;
+	private final BitSet replace; // Set for positions that must be changed to the wall material
+
+	WallPlan(BlockBox region, Material wallMaterial, long[] positions, BlockData[] originals, BitSet replace) {
+		this.region = region;
+		this.wallMaterial = wallMaterial;
+		this.createdAt = System.currentTimeMillis();
+		this.positions = positions;
+		this.originals = originals;
+		this.replace = replace;
+	}
+
+	public BlockBox getRegion() { return region; }
+	public Material getWallMaterial() { return wallMaterial; }
+	public int size() { return positions.length; }
+	public long getPosition(int index) { return positions[index]; }
+	public BlockData getOriginal(int index) { return originals[index]; } // Null if the block was kept when planned
+	public boolean isReplaced(int index) { return replace.get(index); }
+
+	/**
+	 * Checks whether the plan still describes the arena's current wall.
+	 * @param arena The arena to check against.
+	 * @param maxAgeMillis The maximum age of the plan in milliseconds.
+	 * @return True if region and wall material match and the plan is not too old.
+	 */
+	public boolean matches(Arenas arena, long maxAgeMillis) {
+		return region.equals(arena.getRegion()) &&
+				wallMaterial == arena.getSettings().getWallMaterial() &&
+				System.currentTimeMillis() - createdAt <= maxAgeMillis;
+	}
+}
@@ -0,0 +1,159 @@
+package com.vypnito.arena.arenas;
+
+import com.vypnito.arena.arena;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Computes {@link WallPlan}s off the main thread. The main thread only captures chunk snapshots
+ * of the chunks the arena touches; deciding which shell blocks are replaceable and reading their
+ * original block data happens on an async thread. Plans can be prepared ahead of time, as soon
+ * as players start gathering, and are invalidated when a shell block changes.
+ * Must only be called from the main server thread; returned futures complete on the main thread.
+ */
+public class WallPlanner {
+
+	// A prepared plan older than this is recomputed, in case the world changed in ways we don't track
+	private static final long MAX_PLAN_AGE_MILLIS = 60_000L;
+
+	private final arena plugin;
+	private final Map<Arenas, CompletableFuture<WallPlan>> plans = new HashMap<>();
+
+	/**
+	 * Constructor for WallPlanner.
+	 * @param plugin The main plugin instance.
+	 */
+	public WallPlanner(arena plugin) {
+		this.plugin = plugin;
+	}
+
+	/**
+	 * Returns a plan for the arena's wall, reusing a pending or still valid one.
+	 * The future completes on the main thread, with null if the wall cannot be planned.
+	 * @param arena The arena to plan.
+	 * @return The future plan.
+	 */
+	public CompletableFuture<WallPlan> prepare(Arenas arena) {
+		CompletableFuture<WallPlan> existing = plans.get(arena);
+		if (existing != null) {
+			if (!existing.isDone()) return existing;
+			WallPlan plan = existing.getNow(null);
+			if (plan != null && plan.matches(arena, MAX_PLAN_AGE_MILLIS)) return existing;
+		}
+		CompletableFuture<WallPlan> future = startPlanning(arena);
+		plans.put(arena, future);
+		return future;
+	}
+
+	/**
+	 * Checks whether a plan future is still the current, valid one for the arena.
+	 * @param arena The arena.
+	 * @param future The future obtained from {@link #prepare(Arenas)}.
+	 * @return True if the future was not invalidated and its plan matches the arena.
+	 */
+	public boolean isCurrent(Arenas arena, CompletableFuture<WallPlan> future) {
+		if (plans.get(arena) != future || !future.isDone() || future.isCompletedExceptionally()) return false;
+		WallPlan plan = future.getNow(null);
+		return plan != null && plan.matches(arena, MAX_PLAN_AGE_MILLIS);
+	}
+
+	/**
+	 * Discards the arena's plan, e.g. after it was used or after a shell block changed.
+	 * @param arena The arena.
+	 */
+	public void invalidate(Arenas arena) {
+		plans.remove(arena);
+	}
+
+	private CompletableFuture<WallPlan> startPlanning(Arenas arena) {
+		CompletableFuture<WallPlan> result = new CompletableFuture<>();
+		BlockBox region = arena.getRegion();
+		WallTemplate template = arena.getWallTemplate();
+		Material wallMaterial = arena.getSettings().getWallMaterial();
+		Set<Material> replaceable = ArenaManager.getReplaceableWallMaterials();
+		World world = region == null ? null : Bukkit.getWorld(region.getWorldId());
+		if (world == null || wallMaterial == null || replaceable.isEmpty()) {
+			result.complete(null);
+			return result;
+		}
+		// Copies so the async thread never touches shared mutable state
+		Set<Material> replaceableCopy = EnumSet.copyOf(replaceable);
+		int minHeight = world.getMinHeight();
+		int maxHeight = world.getMaxHeight();
+
+		List<CompletableFuture<Chunk>> chunkFutures = new ArrayList<>();
+		region.forEachChunk((cx, cz) -> chunkFutures.add(world.getChunkAtAsync(cx, cz)));
+		CompletableFuture.allOf(chunkFutures.toArray(new CompletableFuture[0])).whenComplete((ignored, error) -> {
+			// Chunk futures complete on the main thread, so the snapshots are taken there
+			if (error != null) {
+				result.completeExceptionally(error);
+				return;
+			}
+			Map<Long, ChunkSnapshot> snapshots = new HashMap<>();
+			for (CompletableFuture<Chunk> chunkFuture : chunkFutures) {
+				Chunk chunk = chunkFuture.join();
+				snapshots.put(ArenaSpatialIndex.chunkKey(chunk.getX(), chunk.getZ()), chunk.getChunkSnapshot(false, false, false));
+			}
+			plugin.getTaskScheduler().runAsync(() -> {
+				try {
+					WallPlan plan = compute(template, wallMaterial, replaceableCopy, snapshots, minHeight, maxHeight);
+					plugin.getTaskScheduler().runAtChunk(world, region.getCenterChunkX(), region.getCenterChunkZ(), () -> result.complete(plan));
+				} catch (RuntimeException e) {
+					plugin.getTaskScheduler().runAtChunk(world, region.getCenterChunkX(), region.getCenterChunkZ(), () -> result.completeExceptionally(e));
+				}
+			});
+		});
+		return result;
+	}
+
+	/**
+	 * Builds the change list from snapshots. Runs on an async thread.
+	 */
+	private static WallPlan compute(WallTemplate template, Material wallMaterial, Set<Material> replaceable,
+									Map<Long, ChunkSnapshot> snapshots, int minHeight, int maxHeight) {
+		int size = template.size();
+		long[] positions = new long[size];
+		BlockData[] originals = new BlockData[size];
+		BitSet replace = new BitSet(size);
+		int count = 0;
+
+		for (int chunk = 0; chunk < template.chunkCount(); chunk++) {
+			ChunkSnapshot snapshot = snapshots.get(template.getChunkKey(chunk));
+			if (snapshot == null) continue;
+			for (int i = template.chunkStart(chunk); i < template.chunkEnd(chunk); i++) {
+				long key = template.getPosition(i);
+				int x = BlockKey.x(key);
+				int y = BlockKey.y(key);
+				int z = BlockKey.z(key);
+				if (y < minHeight || y >= maxHeight) continue;
+
+				Material type = snapshot.getBlockType(x & 15, y, z & 15);
+				boolean replaceableBlock = replaceable.contains(type);
+				positions[count] = key;
+				// Blocks that already are the wall material are recorded too, like in the direct builder.
+				// Other blocks stay in the plan without an original: one destroyed before the seal
+				// (explosion, piston, fire, fluid) is then still filled by the job's live check
+				if (replaceableBlock || type == wallMaterial) {
+					originals[count] = snapshot.getBlockData(x & 15, y, z & 15);
+				}
+				if (replaceableBlock) replace.set(count);
+				count++;
+			}
+		}
+		return new WallPlan(template.getRegion(), wallMaterial, Arrays.copyOf(positions, count), Arrays.copyOf(originals, count), replace);
+	}
+}
@@ -0,0 +1,19 @@
+package com.vypnito.arena.arenas;
+
+/**
+ * Lifecycle of an arena wall, as driven by the game logic.
+ * Every transition bumps the arena's wall state version, so callbacks and timers created
+ * for an earlier state can detect that they are stale and do nothing.
+ */
+public enum WallState {
+	/** No wall; the arena is open. */
+	OPEN,
+	/** Enough players are in; the wall is being planned or built. */
+	SEALING,
+	/** The wall is up and a match is running. */
+	SEALED,
+	/** The match is over; the wall comes down when the removal timer fires. */
+	PENDING_OPEN,
+	/** The wall is being removed. */
+	OPENING
+}
@@ -0,0 +1,162 @@
+package com.vypnito.arena.arenas;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * The precomputed geometry of an arena wall: every shell position of the region, packed with {@link BlockKey}
+ * and sorted so that the positions of each chunk form one contiguous group. Immutable, so it can be shared
+ * with async planning threads. {@link Arenas} builds it lazily and drops it when a position changes.
+ */
+public final class WallTemplate {
+
+	private static final int MAGIC = 0x41575431; // "AWT1"
+
+	private final BlockBox region;
+	private final long[] positions; // Packed with BlockKey, grouped by chunk
+	private final long[] chunkKeys; // Chunk key of each group, see ArenaSpatialIndex.chunkKey
+	private final int[] chunkStarts; // Start index of each group in positions, plus positions.length at the end
+
+	private WallTemplate(BlockBox region, long[] positions, long[] chunkKeys, int[] chunkStarts) {
+		this.region = region;
+		this.positions = positions;
+		this.chunkKeys = chunkKeys;
+		this.chunkStarts = chunkStarts;
+	}
+
+	/**
+	 * Computes the template of a region.
+	 * @param region The arena region.
+	 * @return The template.
+	 */
+	public static WallTemplate build(BlockBox region) {
+		long[] shell = region.shellKeys();
+		int minChunkX = region.getMinChunkX();
+		int minChunkZ = region.getMinChunkZ();
+		int chunksZ = region.getMaxChunkZ() - minChunkZ + 1;
+
+		// Sort key: chunk index, then y, z and x within the chunk (12 bits of y cover any world height)
+		long[] sortable = new long[shell.length];
+		for (int i = 0; i < shell.length; i++) {
+			long key = shell[i];
+			int x = BlockKey.x(key), y = BlockKey.y(key), z = BlockKey.z(key);
+			long chunkIndex = (long) ((x >> 4) - minChunkX) * chunksZ + ((z >> 4) - minChunkZ);
+			sortable[i] = (chunkIndex << 20) | ((long) (y - region.getMinY()) << 8) | ((z & 15) << 4) | (x & 15);
+		}
+		Arrays.sort(sortable);
+		return fromSortKeys(region, sortable);
+	}
+
+	private static WallTemplate fromSortKeys(BlockBox region, long[] sortable) {
+		int minChunkX = region.getMinChunkX();
+		int minChunkZ = region.getMinChunkZ();
+		int chunksZ = region.getMaxChunkZ() - minChunkZ + 1;
+		long[] positions = new long[sortable.length];
+		long[] chunkKeys = new long[sortable.length];
+		int[] chunkStarts = new int[sortable.length + 1];
+		int groups = 0;
+		long lastChunkIndex = -1;
+		for (int i = 0; i < sortable.length; i++) {
+			long sortKey = sortable[i];
+			long chunkIndex = sortKey >>> 20;
+			int cx = minChunkX + (int) (chunkIndex / chunksZ);
+			int cz = minChunkZ + (int) (chunkIndex % chunksZ);
+			int y = region.getMinY() + (int) ((sortKey >>> 8) & 0xFFF);
+			int z = (cz << 4) | (int) ((sortKey >>> 4) & 15);
+			int x = (cx << 4) | (int) (sortKey & 15);
+			positions[i] = BlockKey.pack(x, y, z);
+			if (chunkIndex != lastChunkIndex) {
+				chunkKeys[groups] = ArenaSpatialIndex.chunkKey(cx, cz);
+				chunkStarts[groups] = i;
+				groups++;
+				lastChunkIndex = chunkIndex;
+			}
+		}
+		chunkStarts[groups] = sortable.length;
+		return new WallTemplate(region, positions, Arrays.copyOf(chunkKeys, groups), Arrays.copyOf(chunkStarts, groups + 1));
+	}
+
+	public BlockBox getRegion() { return region; }
+	public int size() { return positions.length; }
+	public long getPosition(int index) { return positions[index]; }
+	public int chunkCount() { return chunkKeys.length; }
+	public long getChunkKey(int chunk) { return chunkKeys[chunk]; }
+	public int chunkStart(int chunk) { return chunkStarts[chunk]; }
+	public int chunkEnd(int chunk) { return chunkStarts[chunk + 1]; }
+
+	/**
+	 * Gets the positions without copying. Callers must not modify the array.
+	 */
+	long[] positions() {
+		return positions;
+	}
+
+	/**
+	 * Saves the template to a file.
+	 * @param file The target file.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public void save(File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeLong(region.getWorldId().getMostSignificantBits());
+			out.writeLong(region.getWorldId().getLeastSignificantBits());
+			out.writeInt(region.getMinX());
+			out.writeInt(region.getMinY());
+			out.writeInt(region.getMinZ());
+			out.writeInt(region.getMaxX());
+			out.writeInt(region.getMaxY());
+			out.writeInt(region.getMaxZ());
+			out.writeInt(positions.length);
+			for (long position : positions) {
+				out.writeLong(position);
+			}
+		}
+	}
+
+	/**
+	 * Loads a template saved with {@link #save(File)}, if it still describes the given region.
+	 * @param file The file to read.
+	 * @param region The arena's current region.
+	 * @return The template, or null if the file belongs to another region or has an unknown format.
+	 * @throws IOException If the file cannot be read.
+	 */
+	public static WallTemplate load(File file, BlockBox region) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC) return null;
+			BlockBox saved = new BlockBox(new UUID(in.readLong(), in.readLong()),
+					in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+			if (!saved.equals(region)) return null;
+			int count = in.readInt();
+			if (count != region.shellSize()) return null;
+			long[] positions = new long[count];
+			for (int i = 0; i < count; i++) {
+				positions[i] = in.readLong();
+			}
+			// Regroup from the stored order; it was sorted by chunk when saved
+			long[] chunkKeys = new long[count];
+			int[] chunkStarts = new int[count + 1];
+			int groups = 0;
+			long lastChunk = 0;
+			for (int i = 0; i < count; i++) {
+				long chunk = ArenaSpatialIndex.chunkKey(BlockKey.x(positions[i]) >> 4, BlockKey.z(positions[i]) >> 4);
+				if (i == 0 || chunk != lastChunk) {
+					chunkKeys[groups] = chunk;
+					chunkStarts[groups] = i;
+					groups++;
+					lastChunk = chunk;
+				}
+			}
+			chunkStarts[groups] = count;
+			return new WallTemplate(region, positions, Arrays.copyOf(chunkKeys, groups), Arrays.copyOf(chunkStarts, groups + 1));
+		}
+	}
+}
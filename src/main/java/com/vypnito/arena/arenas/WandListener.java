@@ -38,6 +38,7 @@ public class WandListener implements Listener {
 			Arenas arena = playerState.getArena();
 			if (playerState.getSelectionType() == PlayerState.SelectionType.POS1) { arena.setPos1(event.getClickedBlock().getLocation()); }
 			else { arena.setPos2(event.getClickedBlock().getLocation()); }
+			arenaManager.updateArenaRegion(arena);
 			arenaManager.saveArena(arena);
 			playerManager.clearPlayerState(player);
 			player.sendMessage(Component.text("Arena corner updated!", NamedTextColor.GREEN));
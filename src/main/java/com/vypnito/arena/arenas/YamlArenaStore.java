@@ -0,0 +1,204 @@
+package com.vypnito.arena.arenas;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stores all arenas in one {@code arenas.yml}, in the format the plugin has always used.
+ * Every write replaces the whole file. Arenas that could not be read are written back exactly as loaded,
+ * so a broken entry is never dropped from the file.
+ */
+public class YamlArenaStore implements ArenaStore {
+
+	private final File file;
+	private final Logger logger;
+	private volatile Map<String, Object> unreadable = Map.of(); // Raw content of the arenas the last load could not read
+
+	/**
+	 * Constructor for YamlArenaStore.
+	 * @param file The arenas.yml file.
+	 * @param logger Logger for arenas that cannot be read.
+	 */
+	public YamlArenaStore(File file, Logger logger) {
+		this.file = file;
+		this.logger = logger;
+	}
+
+	@Override
+	public boolean exists() {
+		return file.exists();
+	}
+
+	@Override
+	public LoadResult load() throws IOException {
+		List<ArenaData> result = new ArrayList<>();
+		Map<String, Object> failed = new LinkedHashMap<>();
+		if (file.exists()) {
+			ConfigurationSection config = parseRaw(Files.readString(file.toPath(), StandardCharsets.UTF_8));
+			ConfigurationSection arenasSection = config.getConfigurationSection("arenas");
+			if (arenasSection != null) {
+				Set<String> nameKeys = new HashSet<>();
+				for (String arenaName : arenasSection.getKeys(false)) {
+					try {
+						if (!nameKeys.add(ArenaData.nameKey(arenaName))) {
+							throw new IllegalArgumentException("another arena has the same name in a different case");
+						}
+						result.add(read(arenaName, arenasSection.getConfigurationSection(arenaName)));
+					} catch (Exception e) {
+						failed.put(arenaName, arenasSection.get(arenaName));
+						logger.log(Level.WARNING, "Error loading arena '" + arenaName + "', it is kept in " + file.getName() + " as it is: " + e.getMessage(), e);
+					}
+				}
+			}
+		}
+		unreadable = Collections.unmodifiableMap(failed);
+		return new LoadResult(result, failed.keySet());
+	}
+
+	@Override
+	public void write(List<ArenaData> arenas, Set<String> changed) throws IOException {
+		YamlConfiguration config = new YamlConfiguration();
+		ConfigurationSection arenasSection = config.createSection("arenas");
+		Set<String> written = new HashSet<>();
+		for (ArenaData data : arenas) {
+			write(arenasSection.createSection(data.name()), data);
+			written.add(data.name());
+		}
+		for (Map.Entry<String, Object> entry : unreadable.entrySet()) {
+			// Kept until the plugin saves or deletes an arena of that name
+			if (!written.contains(entry.getKey()) && !changed.contains(entry.getKey())) {
+				arenasSection.set(entry.getKey(), entry.getValue());
+			}
+		}
+		ArenaStore.replaceAtomically(file, config.saveToString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public File getLocation() {
+		return file;
+	}
+
+	@Override
+	public String describe() {
+		return file.getName();
+	}
+
+	/**
+	 * Parses YAML without deserializing Bukkit objects. Stored locations stay plain sections,
+	 * so they can be read even when their world is not loaded (Bukkit would turn them into null).
+	 * @param yaml The YAML text.
+	 * @return The parsed content.
+	 * @throws IOException If the text is not valid YAML.
+	 */
+	static ConfigurationSection parseRaw(String yaml) throws IOException {
+		Object root;
+		try {
+			root = new Yaml(new SafeConstructor(new LoaderOptions())).load(yaml);
+		} catch (YAMLException e) {
+			throw new IOException("Invalid YAML: " + e.getMessage(), e);
+		}
+		MemoryConfiguration config = new MemoryConfiguration();
+		if (root instanceof Map<?, ?> map) {
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				if (entry.getValue() instanceof Map<?, ?> child) {
+					config.createSection(String.valueOf(entry.getKey()), child);
+				} else {
+					config.set(String.valueOf(entry.getKey()), entry.getValue());
+				}
+			}
+		}
+		return config;
+	}
+
+	/**
+	 * Reads one arena section.
+	 * @param name The name of the arena.
+	 * @param section The arena's section.
+	 * @return The arena data.
+	 */
+	static ArenaData read(String name, ConfigurationSection section) {
+		if (section == null) {
+			throw new IllegalArgumentException("missing arena section");
+		}
+		ArenaData.StoredLocation pos1 = readLocation(section.getConfigurationSection("pos1"));
+		ArenaData.StoredLocation pos2 = readLocation(section.getConfigurationSection("pos2"));
+		ConfigurationSection settings = section.getConfigurationSection("settings");
+		if (settings == null) {
+			settings = new YamlConfiguration(); // Defaults only
+		}
+		return new ArenaData(name, pos1, pos2,
+				settings.getString("wall-material", "GLASS"),
+				settings.getBoolean("allow-block-break", false),
+				settings.getBoolean("allow-block-place", false),
+				settings.getBoolean("allow-item-drop", false),
+				settings.getBoolean("disable-hunger", true),
+				settings.getBoolean("virtual-wall", false),
+				settings.getInt("wall-removal-delay-seconds", 30),
+				settings.getStringList("effects"),
+				settings.getInt("required-players", 2));
+	}
+
+	/**
+	 * Writes one arena into its section.
+	 * @param section The arena's section.
+	 * @param data The arena data.
+	 */
+	static void write(ConfigurationSection section, ArenaData data) {
+		section.set("pos1", serialize(data.pos1()));
+		section.set("pos2", serialize(data.pos2()));
+		ConfigurationSection settingsSection = section.createSection("settings");
+		settingsSection.set("wall-material", data.wallMaterial());
+		settingsSection.set("allow-block-break", data.allowBlockBreak());
+		settingsSection.set("allow-block-place", data.allowBlockPlace());
+		settingsSection.set("allow-item-drop", data.allowItemDrop());
+		settingsSection.set("disable-hunger", data.disableHunger());
+		settingsSection.set("virtual-wall", data.virtualWall());
+		settingsSection.set("wall-removal-delay-seconds", data.wallRemovalDelay());
+		settingsSection.set("effects", data.effects());
+		settingsSection.set("required-players", data.requiredPlayers());
+	}
+
+	/**
+	 * Reads a location serialized by Bukkit without resolving its world.
+	 */
+	private static ArenaData.StoredLocation readLocation(ConfigurationSection section) {
+		if (section == null || !section.isString("world")) return null;
+		return new ArenaData.StoredLocation(section.getString("world"), section.getDouble("x"), section.getDouble("y"),
+				section.getDouble("z"), (float) section.getDouble("yaw"), (float) section.getDouble("pitch"));
+	}
+
+	/**
+	 * Serializes a location the way Bukkit does, without needing the world to be loaded.
+	 */
+	private static Map<String, Object> serialize(ArenaData.StoredLocation location) {
+		if (location == null) return null;
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("==", "org.bukkit.Location");
+		map.put("world", location.world());
+		map.put("x", location.x());
+		map.put("y", location.y());
+		map.put("z", location.z());
+		map.put("pitch", (double) location.pitch());
+		map.put("yaw", (double) location.yaw());
+		return map;
+	}
+}
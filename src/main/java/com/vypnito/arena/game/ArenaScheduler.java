@@ -0,0 +1,202 @@
+package com.vypnito.arena.game;
+
+import com.vypnito.arena.TaskScheduler;
+import com.vypnito.arena.arena;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Central scheduler for arena timers (wall removal deadlines, countdowns, action bar updates).
+ * All timers live in one hashed timing wheel driven by a single repeating task, which only runs
+ * while at least one timer is pending. Every timer is keyed by an owner (usually the arena) and a name;
+ * scheduling a key that is already taken replaces the old timer, and timers can be cancelled by key.
+ * Must only be used from the main server thread.
+ */
+public class ArenaScheduler {
+
+	private static final int WHEEL_SIZE = 256; // Slots, one tick each; longer delays wait for later rounds
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	private final arena plugin;
+	private final List<List<Timer>> wheel = new ArrayList<>(WHEEL_SIZE);
+	private final Map<Object, Map<String, Timer>> timers = new HashMap<>(); // Owner -> name -> pending timer
+	private long currentTick = 0;
+	private TaskScheduler.Task task;
+
+	/**
+	 * A pending timer. Cancelling it is O(1); the wheel drops it lazily when its slot comes up.
+	 */
+	public final class Timer {
+		private final Object owner;
+		private final String name;
+		private final Runnable action;
+		private final long period; // 0 for one-shot timers
+		private long deadline;
+		private boolean cancelled = false;
+
+		private Timer(Object owner, String name, Runnable action, long deadline, long period) {
+			this.owner = owner;
+			this.name = name;
+			this.action = action;
+			this.deadline = deadline;
+			this.period = period;
+		}
+
+		/**
+		 * Cancels the timer. Does nothing if it already fired or was cancelled.
+		 */
+		public void cancel() {
+			if (cancelled) return;
+			cancelled = true;
+			forget(this);
+		}
+
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		/**
+		 * @return The number of ticks until the timer fires next.
+		 */
+		public long getRemainingTicks() {
+			return Math.max(0, deadline - currentTick);
+		}
+	}
+
+	/**
+	 * Constructor for ArenaScheduler.
+	 * @param plugin The main plugin instance.
+	 */
+	public ArenaScheduler(arena plugin) {
+		this.plugin = plugin;
+		for (int i = 0; i < WHEEL_SIZE; i++) {
+			wheel.add(new ArrayList<>());
+		}
+	}
+
+	/**
+	 * Schedules a one-shot timer, replacing any pending timer with the same owner and name.
+	 * @param owner The owner of the timer, e.g. the arena.
+	 * @param name The name of the timer within its owner.
+	 * @param delayTicks The delay in ticks (at least 1).
+	 * @param action The action to run.
+	 * @return The timer.
+	 */
+	public Timer schedule(Object owner, String name, long delayTicks, Runnable action) {
+		return add(owner, name, action, delayTicks, 0);
+	}
+
+	/**
+	 * Schedules a repeating timer, replacing any pending timer with the same owner and name.
+	 * @param owner The owner of the timer, e.g. the arena.
+	 * @param name The name of the timer within its owner.
+	 * @param delayTicks The delay before the first run, in ticks (at least 1).
+	 * @param periodTicks The period between runs, in ticks (at least 1).
+	 * @param action The action to run; it may cancel its own timer.
+	 * @return The timer.
+	 */
+	public Timer scheduleRepeating(Object owner, String name, long delayTicks, long periodTicks, Runnable action) {
+		return add(owner, name, action, delayTicks, Math.max(1, periodTicks));
+	}
+
+	/**
+	 * Gets a pending timer.
+	 * @param owner The owner of the timer.
+	 * @param name The name of the timer.
+	 * @return The timer, or null if none is pending.
+	 */
+	public Timer get(Object owner, String name) {
+		Map<String, Timer> owned = timers.get(owner);
+		return owned == null ? null : owned.get(name);
+	}
+
+	/**
+	 * @return True if a timer with this owner and name is pending.
+	 */
+	public boolean isScheduled(Object owner, String name) {
+		return get(owner, name) != null;
+	}
+
+	/**
+	 * Cancels a pending timer, if there is one.
+	 * @param owner The owner of the timer.
+	 * @param name The name of the timer.
+	 */
+	public void cancel(Object owner, String name) {
+		Timer timer = get(owner, name);
+		if (timer != null) timer.cancel();
+	}
+
+	/**
+	 * Cancels every pending timer of an owner.
+	 * @param owner The owner whose timers should be cancelled.
+	 */
+	public void cancelAll(Object owner) {
+		Map<String, Timer> owned = timers.remove(owner);
+		if (owned == null) return;
+		for (Timer timer : owned.values()) {
+			timer.cancelled = true;
+		}
+		stopIfIdle();
+	}
+
+	private Timer add(Object owner, String name, Runnable action, long delayTicks, long period) {
+		Timer timer = new Timer(owner, name, action, currentTick + Math.max(1, delayTicks), period);
+		Timer previous = timers.computeIfAbsent(owner, k -> new HashMap<>()).put(name, timer);
+		if (previous != null) previous.cancelled = true;
+		wheel.get((int) (timer.deadline & WHEEL_MASK)).add(timer);
+		start();
+		return timer;
+	}
+
+	private void forget(Timer timer) {
+		Map<String, Timer> owned = timers.get(timer.owner);
+		if (owned != null && owned.get(timer.name) == timer) {
+			owned.remove(timer.name);
+			if (owned.isEmpty()) timers.remove(timer.owner);
+		}
+		stopIfIdle();
+	}
+
+	private void tick() {
+		currentTick++;
+		int slotIndex = (int) (currentTick & WHEEL_MASK);
+		List<Timer> slot = wheel.get(slotIndex);
+		if (slot.isEmpty()) return;
+		// Actions may schedule new timers, so work on the current contents and start the slot afresh
+		wheel.set(slotIndex, new ArrayList<>());
+		for (Timer timer : slot) {
+			if (timer.cancelled) continue;
+			if (timer.deadline > currentTick) {
+				wheel.get(slotIndex).add(timer); // Due in a later round
+				continue;
+			}
+			if (timer.period > 0) {
+				timer.deadline += timer.period;
+				wheel.get((int) (timer.deadline & WHEEL_MASK)).add(timer);
+			} else {
+				timer.cancelled = true;
+				forget(timer);
+			}
+			timer.action.run();
+		}
+	}
+
+	private void start() {
+		if (task != null) return;
+		task = plugin.getTaskScheduler().runGlobalTimer(this::tick, 1L, 1L);
+	}
+
+	private void stopIfIdle() {
+		if (timers.isEmpty() && task != null) {
+			task.cancel();
+			task = null;
+			for (List<Timer> slot : wheel) {
+				slot.clear();
+			}
+		}
+	}
+}
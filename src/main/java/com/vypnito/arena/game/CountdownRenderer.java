@@ -0,0 +1,86 @@
+package com.vypnito.arena.game;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.entity.Player;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongFunction;
+
+/**
+ * Renders a seconds countdown into players' action bars.
+ * The component for each number of seconds is built once and cached, and a viewer is only sent
+ * an update when the displayed number changes, plus a keep-alive resend before the client fades it out.
+ * Must only be used from the main server thread.
+ */
+public class CountdownRenderer {
+
+	// The client shows an action bar message for 60 ticks and starts fading it before that, so refresh a bit earlier
+	private static final int KEEP_ALIVE_TICKS = 40;
+
+	private final LongFunction<Component> formatter;
+	private final Map<Long, Component> cache = new HashMap<>(); // Remaining seconds -> pre-built component
+
+	/**
+	 * Constructor for CountdownRenderer.
+	 * @param formatter Builds the component shown for a number of remaining seconds.
+	 */
+	public CountdownRenderer(LongFunction<Component> formatter) {
+		this.formatter = formatter;
+	}
+
+	/**
+	 * Gets the component for a number of remaining seconds, building it on first use.
+	 * @param seconds The remaining seconds.
+	 * @return The cached component.
+	 */
+	public Component render(long seconds) {
+		return cache.computeIfAbsent(seconds, formatter::apply);
+	}
+
+	/**
+	 * Creates a view of this countdown for one player.
+	 * @param player The player whose action bar shows the countdown.
+	 * @return The view.
+	 */
+	public View newView(Player player) {
+		return new View(player);
+	}
+
+	/**
+	 * One player's action bar showing the countdown. Remembers what was last sent to the player.
+	 */
+	public final class View {
+		private final Player player;
+		private long shownSeconds = -1; // -1 while nothing is shown
+		private int ticksSinceSent = 0;
+
+		private View(Player player) {
+			this.player = player;
+		}
+
+		/**
+		 * Updates the view; meant to be called every tick. Sends a packet only if the number changed
+		 * or the shown message is about to fade.
+		 * @param seconds The remaining seconds; nothing is shown for values below 1.
+		 */
+		public void update(long seconds) {
+			if (seconds <= 0) return; // Only display if at least 1 second remains
+			if (seconds == shownSeconds && ++ticksSinceSent < KEEP_ALIVE_TICKS) return;
+			player.sendActionBar(render(seconds));
+			shownSeconds = seconds;
+			ticksSinceSent = 0;
+		}
+
+		/**
+		 * Clears the player's action bar if the countdown is shown in it.
+		 */
+		public void clear() {
+			if (shownSeconds == -1) return;
+			shownSeconds = -1;
+			if (player.isOnline()) {
+				player.sendActionBar(Component.empty());
+			}
+		}
+	}
+}
@@ -2,6 +2,7 @@ package com.vypnito.arena.game;
 
 import com.vypnito.arena.arenas.Arenas;
 import com.vypnito.arena.arenas.ArenaManager;
+import com.vypnito.arena.arenas.ArenaMembershipTracker;
 import org.bukkit.Location; // Import pro Location
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -11,6 +12,9 @@ import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.entity.FoodLevelChangeEvent;
 import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 import org.bukkit.event.player.PlayerDropItemEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
@@ -23,6 +27,7 @@ import org.bukkit.event.player.PlayerTeleportEvent;
 public class GameListener implements Listener {
 	private final GameManager gameManager;
 	private final ArenaManager arenaManager;
+	private final ArenaMembershipTracker membershipTracker;
 
 	/**
 	 * Konstruktor pro GameListener.
@@ -31,6 +36,7 @@ public class GameListener implements Listener {
 	public GameListener(GameManager gameManager) {
 		this.gameManager = gameManager;
 		this.arenaManager = gameManager.getArenaManager(); // Získá ArenaManager z GameManageru
+		this.membershipTracker = arenaManager.getMembershipTracker();
 	}
 
 	/**
@@ -45,7 +51,7 @@ public class GameListener implements Listener {
 		if (event.getFrom().getBlockX() == event.getTo().getBlockX() && event.getFrom().getBlockY() == event.getTo().getBlockY() && event.getFrom().getBlockZ() == event.getTo().getBlockZ()) {
 			return;
 		}
-		handleMovement(event.getPlayer(), event.getFrom(), event.getTo());
+		handleMovement(event.getPlayer(), event.getTo());
 	}
 
 	/**
@@ -54,18 +60,18 @@ public class GameListener implements Listener {
 	 */
 	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
 	public void onPlayerTeleport(PlayerTeleportEvent event) {
-		handleMovement(event.getPlayer(), event.getFrom(), event.getTo());
+		handleMovement(event.getPlayer(), event.getTo());
 	}
 
 	/**
 	 * Společná metoda pro obsluhu pohybu a teleportace, detekující vstup/výstup z arény.
+	 * Původní aréna se bere z trackeru, nová se dohledává jen při skutečném překročení hranice.
 	 * @param player Hráč, který se pohnul.
-	 * @param from Původní lokace hráče.
 	 * @param to Nová lokace hráče.
 	 */
-	private void handleMovement(Player player, Location from, Location to) {
-		Arenas fromArena = arenaManager.findArenaByRegion(from);
-		Arenas toArena = arenaManager.findArenaByRegion(to);
+	private void handleMovement(Player player, Location to) {
+		Arenas fromArena = membershipTracker.getArena(player.getUniqueId());
+		Arenas toArena = membershipTracker.update(player.getUniqueId(), to);
 		// Pokud se aréna, ve které se hráč nachází, změnila
 		if (fromArena != toArena) {
 			if (fromArena != null) {
@@ -86,7 +92,7 @@ public class GameListener implements Listener {
 	@EventHandler
 	public void onPlayerQuit(PlayerQuitEvent event) {
 		Player player = event.getPlayer();
-		Arenas arena = arenaManager.findArenaByRegion(player.getLocation());
+		Arenas arena = membershipTracker.remove(player.getUniqueId());
 		if (arena != null) {
 			arena.removePlayer(player.getUniqueId()); // Používáme UUID pro odstranění
 			gameManager.onPlayerLeaveArena(player, arena);
@@ -100,7 +106,7 @@ public class GameListener implements Listener {
 	@EventHandler
 	public void onPlayerDeath(PlayerDeathEvent event) {
 		Player player = event.getEntity();
-		Arenas arena = arenaManager.findArenaByRegion(player.getLocation());
+		Arenas arena = membershipTracker.remove(player.getUniqueId());
 		if (arena != null) {
 			arena.removePlayer(player.getUniqueId()); // Používáme UUID pro odstranění
 			gameManager.onPlayerDieInArena(player, arena);
@@ -120,8 +126,9 @@ public class GameListener implements Listener {
 		if (blockArena != null && blockArena.isWallActive() && blockArena.isLocationInWall(event.getBlock().getLocation())) { // Přidáno isLocationInWall
 			event.setCancelled(true);
 		} else {
+			invalidateWallPlan(blockArena, event.getBlock().getLocation());
 			// Kontrola, zda je hráč v aréně, kde je rozbíjení bloků zakázáno
-			Arenas playerArena = arenaManager.findArenaByRegion(event.getPlayer().getLocation());
+			Arenas playerArena = membershipTracker.getArena(event.getPlayer().getUniqueId());
 			if (playerArena != null && !playerArena.getSettings().isAllowBlockBreak()) {
 				event.setCancelled(true);
 			}
@@ -138,6 +145,19 @@ public class GameListener implements Listener {
 		Arenas arena = arenaManager.findArenaByRegion(event.getBlock().getLocation());
 		if (arena != null && !arena.getSettings().isAllowBlockPlace()) {
 			event.setCancelled(true);
+		} else {
+			invalidateWallPlan(arena, event.getBlock().getLocation());
+		}
+	}
+
+	/**
+	 * Zahodí připravený plán zdi, pokud se změnil blok na hranici arény, aby se nepoužila zastaralá data.
+	 * @param arena Aréna, ve které se blok nachází (může být null).
+	 * @param location Lokace změněného bloku.
+	 */
+	private void invalidateWallPlan(Arenas arena, Location location) {
+		if (arena != null && !arena.isWallActive() && arena.isLocationInWall(location)) {
+			arenaManager.getWallPlanner().invalidate(arena);
 		}
 	}
 
@@ -148,7 +168,7 @@ public class GameListener implements Listener {
 	 */
 	@EventHandler
 	public void onItemDrop(PlayerDropItemEvent event) {
-		Arenas arena = arenaManager.findArenaByRegion(event.getPlayer().getLocation());
+		Arenas arena = membershipTracker.getArena(event.getPlayer().getUniqueId());
 		if (arena != null && !arena.getSettings().isAllowItemDrop()) {
 			event.setCancelled(true);
 		}
@@ -162,9 +182,39 @@ public class GameListener implements Listener {
 	@EventHandler
 	public void onFoodLevelChange(FoodLevelChangeEvent event) {
 		if (!(event.getEntity() instanceof Player player)) return; // Použito pattern matching pro jednodušší syntaxi
-		Arenas arena = arenaManager.findArenaByRegion(player.getLocation());
+		Arenas arena = membershipTracker.getArena(player.getUniqueId());
 		if (arena != null && arena.getSettings().isDisableHunger()) {
 			event.setCancelled(true);
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Obsluhuje načtení chunku.
+	 * Obnoví bloky zdi, jejichž obnova čekala na načtení tohoto chunku.
+	 * @param event Událost načtení chunku.
+	 */
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onChunkLoad(ChunkLoadEvent event) {
+		arenaManager.restoreParkedChunk(event.getWorld().getUID(), event.getChunk().getX(), event.getChunk().getZ());
+	}
+
+	/**
+	 * Obsluhuje načtení světa.
+	 * Načte arény, které čekaly na tento svět.
+	 * @param event Událost načtení světa.
+	 */
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onWorldLoad(WorldLoadEvent event) {
+		arenaManager.bindWorld(event.getWorld());
+	}
+
+	/**
+	 * Obsluhuje uvolnění světa.
+	 * Odpojí arény tohoto světa, jejich data zůstanou uložena do dalšího načtení světa.
+	 * @param event Událost uvolnění světa.
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onWorldUnload(WorldUnloadEvent event) {
+		arenaManager.unbindWorld(event.getWorld());
+	}
+}
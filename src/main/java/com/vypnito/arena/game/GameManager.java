@@ -3,19 +3,23 @@ package com.vypnito.arena.game;
 import com.vypnito.arena.arena;
 import com.vypnito.arena.arenas.Arenas;
 import com.vypnito.arena.arenas.ArenaManager;
+import com.vypnito.arena.arenas.BlockJob;
+import com.vypnito.arena.arenas.WallPlan;
+import com.vypnito.arena.arenas.WallPlanner;
+import com.vypnito.arena.arenas.WallState;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -25,8 +29,16 @@ import java.util.stream.Collectors;
 public class GameManager {
 	private final arena plugin;
 	private final ArenaManager arenaManager;
+	private final VirtualWallManager virtualWallManager; // Client-side walls for arenas with virtual-wall enabled
+	private final ArenaScheduler scheduler; // Single timing wheel for all arena timers
+	private final CountdownRenderer countdownRenderer = new CountdownRenderer(
+			seconds -> Component.text("Arena opens in " + seconds + " seconds", NamedTextColor.AQUA)); // Wall removal countdown
 	private final Map<UUID, PlayerEffectSnapshot> savedPlayerEffects = new HashMap<>(); // Stores player effects upon entering an arena
 
+	// Timer names, keyed per arena in the scheduler
+	private static final String WALL_REMOVAL_TIMER = "wall-removal";
+	private static final String COUNTDOWN_TIMER_PREFIX = "countdown:";
+
 	// Record for saving a player's effect state
 	private record PlayerEffectSnapshot(long timestamp, Collection<PotionEffect> effects) {}
 
@@ -38,6 +50,37 @@ public class GameManager {
 	public GameManager(arena plugin, ArenaManager arenaManager) {
 		this.plugin = plugin;
 		this.arenaManager = arenaManager;
+		this.virtualWallManager = new VirtualWallManager(plugin);
+		this.scheduler = new ArenaScheduler(plugin);
+		arenaManager.setUnregisterListener(this::onArenaUnregistered);
+	}
+
+	/**
+	 * Called right before an arena is unregistered. Players still inside leave it and get their own effects back,
+	 * its virtual wall is taken down, so the wall's block states (and with them its world) are released
+	 * and nobody is kept out of the region, and its timers are cancelled.
+	 * @param arena The arena being unregistered.
+	 */
+	private void onArenaUnregistered(Arenas arena) {
+		for (UUID playerId : arena.getPlayers()) {
+			arena.removePlayer(playerId);
+			Player player = Bukkit.getPlayer(playerId);
+			if (player != null) {
+				restoreOriginalEffects(player);
+			}
+		}
+		scheduler.cancelAll(arena);
+		if (arena.isVirtualWallActive()) {
+			virtualWallManager.unseal(arena);
+		}
+	}
+
+	/**
+	 * Gets the scheduler driving all arena timers.
+	 * @return The arena scheduler.
+	 */
+	public ArenaScheduler getScheduler() {
+		return scheduler;
 	}
 
 	/**
@@ -48,6 +91,14 @@ public class GameManager {
 		return arenaManager;
 	}
 
+	/**
+	 * Gets the manager of client-side (virtual) walls.
+	 * @return VirtualWallManager.
+	 */
+	public VirtualWallManager getVirtualWallManager() {
+		return virtualWallManager;
+	}
+
 	/**
 	 * Called when a player enters an arena.
 	 * Saves the player's current effects and applies arena-specific effects.
@@ -58,6 +109,10 @@ public class GameManager {
 		Collection<PotionEffect> currentEffects = new ArrayList<>(player.getActivePotionEffects());
 		savedPlayerEffects.put(player.getUniqueId(), new PlayerEffectSnapshot(System.currentTimeMillis(), currentEffects));
 		applyArenaEffects(player, arena);
+		// Players are gathering: compute the wall plan in the background so sealing only has to write blocks
+		if (arena.getWallState() == WallState.OPEN) {
+			arenaManager.getWallPlanner().prepare(arena);
+		}
 		checkWallCreation(arena); // Check if the wall should be created (if enough players are present)
 	}
 
@@ -92,57 +147,170 @@ public class GameManager {
 
 	/**
 	 * Checks if the arena wall should be created.
-	 * The wall is created if there are enough players in the arena and the wall is not already active.
+	 * The wall is created if there are enough players in the arena and the wall is open or opening.
+	 * A wall that is only waiting for its delayed removal is kept for the new match instead.
 	 * @param arena The arena to check.
 	 */
 	public void checkWallCreation(Arenas arena) {
 		if (arena == null) return;
-		// Wall is created ONLY if there are enough players AND it's not already active.
-		if (arena.getPlayers().size() >= arena.getSettings().getRequiredPlayers() && !arena.isWallActive()) { // NEW: Use requiredPlayers
-			arena.createBoundaryWall(); // Create the arena wall
-			arena.getPlayers().forEach(uuid -> { // Notify all players in the arena
-				Player p = Bukkit.getPlayer(uuid);
-				if (p != null) {
-					p.sendMessage(Component.text("The arena has been sealed!", NamedTextColor.YELLOW));
+		// Wall is created ONLY if there are enough players
+		if (arena.getPlayers().size() < arena.getSettings().getRequiredPlayers()) return; // NEW: Use requiredPlayers
+		WallState state = arena.getWallState();
+		if (state == WallState.SEALING || state == WallState.SEALED) return;
+
+		// A new match starts: a removal still pending from the previous one must not open this wall
+		scheduler.cancelAll(arena);
+		Component sealedMessage = Component.text("The arena has been sealed!", NamedTextColor.YELLOW);
+		if (state == WallState.PENDING_OPEN) {
+			// The wall is still standing, so it simply stays up
+			arena.setWallState(WallState.SEALED);
+			notifyPlayers(arena, sealedMessage);
+			return;
+		}
+		// A template reset still running would rewrite the arena during the match, so the match wins
+		arena.cancelReset();
+		// Both kinds of wall come from an async plan; the seal happens once the plan is ready (on the main thread)
+		long sealing = arena.setWallState(WallState.SEALING);
+		WallPlanner planner = arenaManager.getWallPlanner();
+		CompletableFuture<WallPlan> future = planner.prepare(arena);
+		future.whenComplete((plan, error) -> {
+			// The arena may have been opened (or its match ended) while planning
+			if (!arena.isWallState(WallState.SEALING, sealing)) return;
+			if (arena.getSettings().isVirtualWall()) {
+				sealVirtualWall(arena, planner, future, plan, error, sealedMessage);
+				return;
+			}
+			BlockJob job;
+			if (error == null && planner.isCurrent(arena, future)) {
+				job = arena.createBoundaryWall(plan);
+			} else {
+				// Plan failed or went stale (a shell block changed): fall back to reading blocks directly
+				job = arena.createBoundaryWall();
+			}
+			planner.invalidate(arena); // A plan is used for one seal only
+			if (job == null) {
+				arena.setWallState(WallState.OPEN);
+				return;
+			}
+			// Notify players only once the wall has actually been placed
+			job.onComplete(() -> {
+				if (arena.isWallState(WallState.SEALING, sealing)) {
+					arena.setWallState(WallState.SEALED);
+					notifyPlayers(arena, sealedMessage);
 				}
 			});
+			arenaManager.getBlockJobQueue().submit(job);
+		});
+	}
+
+	/**
+	 * Seals a virtual wall from a finished plan. Only packets are sent, the world is never read or modified.
+	 * A plan that went stale (a shell block changed) is replaced by a fresh one instead of scanning the shell here.
+	 */
+	private void sealVirtualWall(Arenas arena, WallPlanner planner, CompletableFuture<WallPlan> future, WallPlan plan,
+								 Throwable error, Component sealedMessage) {
+		boolean current = error == null && planner.isCurrent(arena, future);
+		planner.invalidate(arena); // A plan is used for one seal only
+		if (current && virtualWallManager.seal(arena, plan)) {
+			arena.setWallState(WallState.SEALED);
+			notifyPlayers(arena, sealedMessage);
+			return;
+		}
+		arena.setWallState(WallState.OPEN);
+		if (error == null && plan != null && !current) {
+			checkWallCreation(arena); // Plans again with the current world
 		}
 	}
 
 	/**
-	 * Instantly removes the arena wall if it's active.
+	 * Instantly removes the arena wall if it's sealing, sealed or waiting for its delayed removal.
 	 * @param arena The arena whose wall should be removed.
 	 */
 	public void removeWallInstantly(Arenas arena) {
-		if (arena != null && arena.isWallActive()) {
-			arena.removeBoundaryWall();
-		}
+		if (arena == null) return;
+		WallState state = arena.getWallState();
+		if (state == WallState.OPEN || state == WallState.OPENING) return;
+		openWall(arena, null);
 	}
 
 	/**
 	 * Removes the arena wall with a defined delay.
+	 * Only one removal is pending per arena; further deaths keep the earliest deadline,
+	 * and the removal does nothing if the wall left the PENDING_OPEN state meanwhile.
 	 * @param arena The arena whose wall should be removed.
 	 */
 	public void removeWallWithDelay(Arenas arena) {
-		if (arena != null && arena.isWallActive()) {
-			new BukkitRunnable() {
-				@Override
-				public void run() {
-					// Check if there are still less than required players in the arena before removing the wall
-					if (arena.getPlayers().size() < arena.getSettings().getRequiredPlayers()) { // NEW: Use requiredPlayers
-						arena.removeBoundaryWall();
-						arena.getPlayers().forEach(uuid -> { // Notify remaining players
-							Player p = Bukkit.getPlayer(uuid);
-							if (p != null) {
-								p.sendMessage(Component.text("The arena wall has been removed.", NamedTextColor.GRAY));
-							}
-						});
-					}
-				}
-			}.runTaskLater(plugin, arena.getSettings().getWallRemovalDelay() * 20L); // 20 ticks = 1 second
+		if (arena == null) return;
+		WallState state = arena.getWallState();
+		if (state != WallState.SEALING && state != WallState.SEALED) return;
+
+		long pending = arena.setWallState(WallState.PENDING_OPEN);
+		scheduler.schedule(arena, WALL_REMOVAL_TIMER, arena.getSettings().getWallRemovalDelay() * 20L, () -> { // 20 ticks = 1 second
+			if (!arena.isWallState(WallState.PENDING_OPEN, pending)) return; // Re-sealed or already opened
+			// Check if there are still less than required players in the arena before removing the wall
+			if (arena.getPlayers().size() >= arena.getSettings().getRequiredPlayers()) { // NEW: Use requiredPlayers
+				arena.setWallState(WallState.SEALED);
+				return;
+			}
+			openWall(arena, Component.text("The arena wall has been removed.", NamedTextColor.GRAY));
+		});
+	}
+
+	/**
+	 * Opens the arena: repairs its interior and removes the wall, virtual or real.
+	 * @param arena The arena to open.
+	 * @param removedMessage Message for the remaining players once the wall is gone, or null.
+	 */
+	private void openWall(Arenas arena, Component removedMessage) {
+		scheduler.cancel(arena, WALL_REMOVAL_TIMER); // Owned by the state being left
+		submitRollback(arena); // Queued first, so the interior is repaired before the wall opens
+		if (arena.isVirtualWallActive()) {
+			virtualWallManager.unseal(arena);
+			arena.setWallState(WallState.OPEN);
+			if (removedMessage != null) notifyPlayers(arena, removedMessage);
+			return;
+		}
+		BlockJob job = arena.isWallActive() ? arena.removeBoundaryWall() : null;
+		if (job == null) {
+			// Still planning, nothing has been built yet
+			arena.setWallState(WallState.OPEN);
+			return;
+		}
+		long opening = arena.setWallState(WallState.OPENING);
+		job.onComplete(() -> {
+			if (arena.isWallState(WallState.OPENING, opening)) {
+				arena.setWallState(WallState.OPEN);
+			}
+			if (removedMessage != null) notifyPlayers(arena, removedMessage); // Notify remaining players
+		});
+		arenaManager.getBlockJobQueue().submit(job);
+	}
+
+	/**
+	 * Queues the rollback of every block changed inside the arena during the match.
+	 * @param arena The arena that is being opened.
+	 */
+	private void submitRollback(Arenas arena) {
+		BlockJob rollback = arena.createRollbackJob();
+		if (rollback != null) {
+			arenaManager.getBlockJobQueue().submit(rollback);
 		}
 	}
 
+	/**
+	 * Sends a chat message to every player currently in the arena.
+	 * @param arena The arena whose players should be notified.
+	 * @param message The message to send.
+	 */
+	private void notifyPlayers(Arenas arena, Component message) {
+		arena.getPlayers().forEach(uuid -> {
+			Player p = Bukkit.getPlayer(uuid);
+			if (p != null) {
+				p.sendMessage(message);
+			}
+		});
+	}
+
 	/**
 	 * Applies effects defined in the arena settings to the player.
 	 * All current player effects are removed before applying arena effects.
@@ -155,29 +323,9 @@ public class GameManager {
 			player.removePotionEffect(type);
 		}
 
-		// Apply effects defined in arena settings
-		for (String effectString : arena.getSettings().getEffects()) {
-			try {
-				String[] parts = effectString.split(":");
-				String effectName = parts[0].toUpperCase().trim();
-				// Mapping old effect names to new ones (for backward compatibility if needed)
-				effectName = switch (effectName) {
-					case "STRENGTH" -> "INCREASE_DAMAGE";
-					case "HASTE" -> "FAST_DIGGING";
-					case "MINING_FATIGUE" -> "SLOW_DIGGING";
-					case "SLOWNESS" -> "SLOW";
-					case "NAUSEA" -> "CONFUSION";
-					default -> effectName;
-				};
-				PotionEffectType type = PotionEffectType.getByName(effectName);
-				int amplifier = Integer.parseInt(parts[1].trim()); // Amplifier is typically 1 less than level (level 1 = amplifier 0)
-				if (type != null) {
-					// Apply the effect for an infinite duration (Integer.MAX_VALUE) with the given amplifier
-					player.addPotionEffect(new PotionEffect(type, Integer.MAX_VALUE, amplifier, false, false));
-				}
-			} catch (Exception e) {
-				plugin.getLogger().warning("Error parsing effect '" + effectString + "'. Check format (e.g., 'SPEED:1').");
-			}
+		// Apply effects defined in arena settings, compiled when the settings changed
+		for (PotionEffect effect : arena.getSettings().getCompiledEffects()) {
+			player.addPotionEffect(effect);
 		}
 	}
 
@@ -217,26 +365,19 @@ public class GameManager {
 		int delay = arena.getSettings().getWallRemovalDelay(); // Delay in seconds
 		player.sendMessage(Component.text("The arena wall will be removed in " + delay + " seconds.", NamedTextColor.GRAY));
 
-		// BukkitRunnable for action bar updates
-		new BukkitRunnable() {
-			private int ticks = 0; // Tick counter
-			private final int totalTicks = delay * 20; // Total ticks for the delay
-
-			@Override
-			public void run() {
-				// Cancel the task if time has elapsed or the player is no longer online
-				if (ticks >= totalTicks || !player.isOnline()) {
-					this.cancel();
-					player.sendActionBar(Component.empty()); // Clear action bar
-					return;
-				}
-				// Calculate remaining seconds and display them in the action bar
-				int remainingSeconds = (totalTicks - ticks) / 20;
-				if (remainingSeconds > 0) { // Only display if at least 1 second remains
-					player.sendActionBar(Component.text("Arena opens in " + remainingSeconds + " seconds", NamedTextColor.AQUA));
-				}
-				ticks++;
+		// Action bar updates, driven by the arena scheduler and following the arena's pending removal
+		String timerName = COUNTDOWN_TIMER_PREFIX + player.getUniqueId();
+		CountdownRenderer.View view = countdownRenderer.newView(player);
+		scheduler.scheduleRepeating(arena, timerName, 1L, 1L, () -> {
+			ArenaScheduler.Timer removal = scheduler.get(arena, WALL_REMOVAL_TIMER);
+			// Stop once the wall is removed (or the removal was cancelled) or the player is no longer online
+			if (removal == null || !player.isOnline()) {
+				scheduler.cancel(arena, timerName);
+				view.clear(); // Clear action bar
+				return;
 			}
-		}.runTaskTimer(plugin, 0L, 1L); // Start task immediately and repeat every tick
+			// Calculate remaining seconds; the view only sends a packet when the number changes
+			view.update(removal.getRemainingTicks() / 20);
+		});
 	}
 }
\ No newline at end of file
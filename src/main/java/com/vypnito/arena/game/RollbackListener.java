@@ -0,0 +1,161 @@
+package com.vypnito.arena.game;
+
+import com.vypnito.arena.arenas.ArenaManager;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.data.Directional;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFadeEvent;
+import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockIgniteEvent;
+import org.bukkit.event.block.BlockMultiPlaceEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.player.PlayerBucketEmptyEvent;
+import org.bukkit.event.player.PlayerBucketFillEvent;
+
+import java.util.List;
+
+/**
+ * RollbackListener zaznamenává původní stav bloků uvnitř uzavřených arén těsně před jejich změnou,
+ * aby se aréna po skončení zápasu vrátila do původního stavu.
+ * Všechny handlery běží na MONITOR, takže zaznamenávají jen změny, které opravdu proběhnou.
+ */
+public class RollbackListener implements Listener {
+	private final ArenaManager arenaManager;
+
+	/**
+	 * Konstruktor pro RollbackListener.
+	 * @param arenaManager Instance ArenaManageru.
+	 */
+	public RollbackListener(ArenaManager arenaManager) {
+		this.arenaManager = arenaManager;
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockBreak(BlockBreakEvent event) {
+		arenaManager.recordBlockChange(event.getBlock());
+	}
+
+	/**
+	 * Při položení bloku už svět obsahuje nový blok, původní stav je v nahrazeném stavu události.
+	 * @param event Událost položení bloku.
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockPlace(BlockPlaceEvent event) {
+		if (event instanceof BlockMultiPlaceEvent multiPlace) {
+			for (BlockState state : multiPlace.getReplacedBlockStates()) {
+				arenaManager.recordBlockChange(state.getBlock(), state.getBlockData());
+			}
+			return;
+		}
+		arenaManager.recordBlockChange(event.getBlock(), event.getBlockReplacedState().getBlockData());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onEntityExplode(EntityExplodeEvent event) {
+		recordAll(event.blockList());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockExplode(BlockExplodeEvent event) {
+		recordAll(event.blockList());
+	}
+
+	/**
+	 * Tekoucí voda a láva (a padající dračí vejce).
+	 * @param event Událost toku kapaliny.
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockFromTo(BlockFromToEvent event) {
+		arenaManager.recordBlockChange(event.getToBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockBurn(BlockBurnEvent event) {
+		arenaManager.recordBlockChange(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockIgnite(BlockIgniteEvent event) {
+		arenaManager.recordBlockChange(event.getBlock());
+	}
+
+	/**
+	 * Vznik bloků (kámen z lávy, led, sníh) včetně šíření ohně, které je podtypem této události.
+	 * @param event Událost vzniku bloku.
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockForm(BlockFormEvent event) {
+		arenaManager.recordBlockChange(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBlockFade(BlockFadeEvent event) {
+		arenaManager.recordBlockChange(event.getBlock());
+	}
+
+	/**
+	 * Padající bloky, endermani a další entity měnící bloky.
+	 * @param event Událost změny bloku entitou.
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onEntityChangeBlock(EntityChangeBlockEvent event) {
+		arenaManager.recordBlockChange(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBucketEmpty(PlayerBucketEmptyEvent event) {
+		arenaManager.recordBlockChange(event.getBlock());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onBucketFill(PlayerBucketFillEvent event) {
+		arenaManager.recordBlockChange(event.getBlock());
+	}
+
+	/**
+	 * Píst mění posunuté bloky i místa, kam se posunou, včetně místa pro hlavu pístu.
+	 * @param event Událost vysunutí pístu.
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onPistonExtend(BlockPistonExtendEvent event) {
+		recordPiston(event.getBlock(), event.getBlocks());
+	}
+
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public void onPistonRetract(BlockPistonRetractEvent event) {
+		recordPiston(event.getBlock(), event.getBlocks());
+	}
+
+	private void recordAll(List<Block> blocks) {
+		for (Block block : blocks) {
+			arenaManager.recordBlockChange(block);
+		}
+	}
+
+	/**
+	 * Zaznamená hlavu pístu a posouvané bloky na obou stranách ve směru pístu.
+	 * Záznam bloku, který se nakonec nezmění, je neškodný: obnoví se na stejný stav.
+	 */
+	private void recordPiston(Block piston, List<Block> moved) {
+		if (!(piston.getBlockData() instanceof Directional directional)) return;
+		BlockFace facing = directional.getFacing();
+		arenaManager.recordBlockChange(piston.getRelative(facing));
+		for (Block block : moved) {
+			arenaManager.recordBlockChange(block);
+			arenaManager.recordBlockChange(block.getRelative(facing));
+			arenaManager.recordBlockChange(block.getRelative(facing.getOppositeFace()));
+		}
+	}
+}
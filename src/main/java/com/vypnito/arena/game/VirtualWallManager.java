@@ -0,0 +1,331 @@
+package com.vypnito.arena.game;
+
+import com.vypnito.arena.TaskScheduler;
+import com.vypnito.arena.arena;
+import com.vypnito.arena.arenas.ArenaSpatialIndex;
+import com.vypnito.arena.arenas.Arenas;
+import com.vypnito.arena.arenas.BlockBox;
+import com.vypnito.arena.arenas.BlockKey;
+import com.vypnito.arena.arenas.WallPlan;
+import io.papermc.paper.event.packet.PlayerChunkLoadEvent;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Manages client-side (virtual) arena walls. The wall is never placed in the world:
+ * it is sent to the arena's players and nearby spectators as one bulk block change per chunk,
+ * re-sent when a recipient reloads a chunk or respawns, and enforced server-side by movement checks.
+ */
+public class VirtualWallManager implements Listener {
+	private final arena plugin;
+	private final Map<Arenas, VirtualWall> walls = new HashMap<>(); // Active virtual walls by arena
+	private TaskScheduler.Task refreshTask; // Picks up new nearby spectators, runs only while a wall is active
+
+	/**
+	 * A sealed virtual wall: the positions shown as wall grouped by chunk, the block data they all show,
+	 * and who has received them. Block states are only built while sending.
+	 */
+	private static final class VirtualWall {
+		private final Arenas arena;
+		private final UUID worldId;
+		private final BlockBox region;
+		private final BlockData wallData; // Shared by every position of the wall
+		private final Map<Long, long[]> positionsByChunk; // Packed with BlockKey
+		private final Set<UUID> recipients = new HashSet<>();
+
+		private VirtualWall(Arenas arena, BlockBox region, BlockData wallData, Map<Long, long[]> positionsByChunk) {
+			this.arena = arena;
+			this.worldId = region.getWorldId();
+			this.region = region;
+			this.wallData = wallData;
+			this.positionsByChunk = positionsByChunk;
+		}
+	}
+
+	/**
+	 * Constructor for VirtualWallManager.
+	 * @param plugin The main plugin instance.
+	 */
+	public VirtualWallManager(arena plugin) {
+		this.plugin = plugin;
+	}
+
+	/**
+	 * @return True if at least one virtual wall is active.
+	 */
+	public boolean hasActiveWalls() {
+		return !walls.isEmpty();
+	}
+
+	/**
+	 * Seals the arena with a virtual wall and sends it to all current recipients.
+	 * The wall comes from a {@link WallPlan} computed off the main thread, so sealing never reads
+	 * (or loads) the world: the positions the plan would replace are shown as wall, like with real walls.
+	 * @param arena The arena to seal.
+	 * @param plan A current plan for the arena's wall, see {@link com.vypnito.arena.arenas.WallPlanner#isCurrent}.
+	 * @return True if the wall was sealed.
+	 */
+	public boolean seal(Arenas arena, WallPlan plan) {
+		BlockBox region = arena.getRegion();
+		if (region == null || plan == null || !region.equals(plan.getRegion()) || !plan.getWallMaterial().isBlock()) return false;
+		if (Bukkit.getWorld(region.getWorldId()) == null) return false;
+
+		unseal(arena);
+		BlockData wallData = plan.getWallMaterial().createBlockData();
+		// Plan positions follow the wall template, grouped by chunk
+		Map<Long, long[]> positionsByChunk = new HashMap<>();
+		long[] run = new long[Math.max(16, plan.size())];
+		int count = 0;
+		long runChunk = 0;
+		for (int i = 0; i < plan.size(); i++) {
+			if (!plan.isReplaced(i)) continue;
+			long key = plan.getPosition(i);
+			long chunk = ArenaSpatialIndex.chunkKey(BlockKey.x(key) >> 4, BlockKey.z(key) >> 4);
+			if (count > 0 && chunk != runChunk) {
+				addPositions(positionsByChunk, runChunk, Arrays.copyOf(run, count));
+				count = 0;
+			}
+			runChunk = chunk;
+			run[count++] = key;
+		}
+		if (count > 0) {
+			addPositions(positionsByChunk, runChunk, Arrays.copyOf(run, count));
+		}
+
+		VirtualWall wall = new VirtualWall(arena, region, wallData, positionsByChunk);
+		walls.put(arena, wall);
+		arena.setVirtualWallActive(true);
+		refreshRecipients(wall);
+		startRefreshTask();
+		return true;
+	}
+
+	private static void addPositions(Map<Long, long[]> positionsByChunk, long chunk, long[] positions) {
+		positionsByChunk.merge(chunk, positions, (existing, added) -> {
+			long[] merged = Arrays.copyOf(existing, existing.length + added.length);
+			System.arraycopy(added, 0, merged, existing.length, added.length);
+			return merged;
+		});
+	}
+
+	/**
+	 * Removes the arena's virtual wall and sends the real blocks back to everyone who received it.
+	 * @param arena The arena to open.
+	 */
+	public void unseal(Arenas arena) {
+		VirtualWall wall = walls.remove(arena);
+		arena.setVirtualWallActive(false);
+		if (wall == null) return;
+		if (walls.isEmpty()) stopRefreshTask();
+
+		World world = Bukkit.getWorld(wall.worldId);
+		if (world == null) return;
+		List<List<BlockState>> realStates = new ArrayList<>(wall.positionsByChunk.size());
+		for (Map.Entry<Long, long[]> entry : wall.positionsByChunk.entrySet()) {
+			// Clients drop unloaded chunks anyway, so never load one just to send it
+			if (!isChunkLoaded(world, entry.getKey())) continue;
+			realStates.add(toStates(world, entry.getValue(), null));
+		}
+		for (UUID recipientId : wall.recipients) {
+			Player player = Bukkit.getPlayer(recipientId);
+			if (player == null || !player.getWorld().getUID().equals(wall.worldId)) continue;
+			for (List<BlockState> states : realStates) {
+				player.sendBlockChanges(states);
+			}
+		}
+	}
+
+	/**
+	 * Adds arena players and nearby spectators as recipients, sending the full wall to new ones.
+	 * Recipients that changed world are dropped; they get the wall again if they come back.
+	 */
+	private void refreshRecipients(VirtualWall wall) {
+		World world = Bukkit.getWorld(wall.worldId);
+		if (world == null) return;
+		wall.recipients.removeIf(id -> {
+			Player player = Bukkit.getPlayer(id);
+			return player == null || !player.getWorld().getUID().equals(wall.worldId);
+		});
+		int viewDistance = plugin.getConfig().getInt("arena-settings.virtual-wall-view-distance", 48);
+		long maxDistanceSquared = (long) viewDistance * viewDistance;
+		for (Player player : world.getPlayers()) {
+			if (wall.recipients.contains(player.getUniqueId())) continue;
+			if (wall.arena.isPlayerInArena(player) || distanceSquared(wall.region, player.getLocation()) <= maxDistanceSquared) {
+				wall.recipients.add(player.getUniqueId());
+				sendWall(player, wall);
+			}
+		}
+	}
+
+	private void sendWall(Player player, VirtualWall wall) {
+		World world = Bukkit.getWorld(wall.worldId);
+		if (world == null) return;
+		for (Map.Entry<Long, long[]> entry : wall.positionsByChunk.entrySet()) {
+			// An unloaded chunk gets its part when the client loads it, see onPlayerChunkLoad
+			if (!isChunkLoaded(world, entry.getKey())) continue;
+			player.sendBlockChanges(toStates(world, entry.getValue(), wall.wallData));
+		}
+	}
+
+	/**
+	 * Builds the block states to send for some positions of a loaded chunk.
+	 * @param data The block data to show, or null to send the real blocks.
+	 */
+	private static List<BlockState> toStates(World world, long[] positions, BlockData data) {
+		List<BlockState> states = new ArrayList<>(positions.length);
+		for (long key : positions) {
+			// No snapshot needed, the state is only sent and never applied
+			BlockState state = world.getBlockAt(BlockKey.x(key), BlockKey.y(key), BlockKey.z(key)).getState(false);
+			if (data != null) state.setBlockData(data);
+			states.add(state);
+		}
+		return states;
+	}
+
+	private static boolean isChunkLoaded(World world, long chunkKey) {
+		return world.isChunkLoaded((int) (chunkKey >> 32), (int) chunkKey);
+	}
+
+	private static long distanceSquared(BlockBox region, Location location) {
+		long dx = Math.max(0, Math.max(region.getMinX() - location.getBlockX(), location.getBlockX() - region.getMaxX()));
+		long dy = Math.max(0, Math.max(region.getMinY() - location.getBlockY(), location.getBlockY() - region.getMaxY()));
+		long dz = Math.max(0, Math.max(region.getMinZ() - location.getBlockZ(), location.getBlockZ() - region.getMaxZ()));
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	private void startRefreshTask() {
+		if (refreshTask != null) return;
+		refreshTask = plugin.getTaskScheduler().runGlobalTimer(() -> {
+			for (VirtualWall wall : walls.values()) {
+				refreshRecipients(wall);
+			}
+		}, 20L, 20L);
+	}
+
+	private void stopRefreshTask() {
+		if (refreshTask != null) {
+			refreshTask.cancel();
+			refreshTask = null;
+		}
+	}
+
+	/**
+	 * Re-sends the wall part of a chunk when a recipient's client (re)loads it.
+	 * @param event The chunk load event for the player.
+	 */
+	@EventHandler
+	public void onPlayerChunkLoad(PlayerChunkLoadEvent event) {
+		if (walls.isEmpty()) return;
+		Player player = event.getPlayer();
+		Chunk chunk = event.getChunk();
+		UUID worldId = chunk.getWorld().getUID();
+		long key = ArenaSpatialIndex.chunkKey(chunk.getX(), chunk.getZ());
+		for (VirtualWall wall : walls.values()) {
+			if (!wall.worldId.equals(worldId) || !wall.recipients.contains(player.getUniqueId())) continue;
+			long[] positions = wall.positionsByChunk.get(key);
+			if (positions != null) {
+				player.sendBlockChanges(toStates(chunk.getWorld(), positions, wall.wallData));
+			}
+		}
+	}
+
+	/**
+	 * Re-sends all walls to a recipient after respawning, once the client has the world again.
+	 * @param event The respawn event.
+	 */
+	@EventHandler
+	public void onPlayerRespawn(PlayerRespawnEvent event) {
+		if (walls.isEmpty()) return;
+		Player player = event.getPlayer();
+		plugin.getTaskScheduler().runForEntity(player, () -> {
+			if (!player.isOnline()) return;
+			UUID worldId = player.getWorld().getUID();
+			for (VirtualWall wall : walls.values()) {
+				if (wall.worldId.equals(worldId) && wall.recipients.contains(player.getUniqueId())) {
+					sendWall(player, wall);
+				}
+			}
+		});
+	}
+
+	@EventHandler
+	public void onPlayerQuit(PlayerQuitEvent event) {
+		for (VirtualWall wall : walls.values()) {
+			wall.recipients.remove(event.getPlayer().getUniqueId());
+		}
+	}
+
+	/**
+	 * Enforces virtual walls server-side: arena players cannot leave the region or step from the
+	 * interior onto the wall, and nobody else can walk into a sealed region.
+	 * Runs before GameListener's MONITOR handler, so a blocked move never counts as leaving the arena.
+	 * @param event The move event.
+	 */
+	@EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+	public void onPlayerMove(PlayerMoveEvent event) {
+		if (walls.isEmpty() || event instanceof PlayerTeleportEvent) return;
+		Location from = event.getFrom();
+		Location to = event.getTo();
+		if (from.getBlockX() == to.getBlockX() && from.getBlockY() == to.getBlockY() && from.getBlockZ() == to.getBlockZ()) return;
+		if (isBlocked(event.getPlayer(), from, to)) {
+			event.setCancelled(true);
+		}
+	}
+
+	/**
+	 * Applies the same checks to ender pearls and chorus fruit, which would otherwise carry players
+	 * through a wall that only exists on the client. Teleports by commands and plugins are left alone.
+	 * @param event The teleport event.
+	 */
+	@EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+	public void onPlayerTeleport(PlayerTeleportEvent event) {
+		if (walls.isEmpty()) return;
+		PlayerTeleportEvent.TeleportCause cause = event.getCause();
+		if (cause != PlayerTeleportEvent.TeleportCause.ENDER_PEARL && cause != PlayerTeleportEvent.TeleportCause.CHORUS_FRUIT) return;
+		if (isBlocked(event.getPlayer(), event.getFrom(), event.getTo())) {
+			event.setCancelled(true);
+		}
+	}
+
+	private boolean isBlocked(Player player, Location from, Location to) {
+		UUID worldId = to.getWorld().getUID();
+		boolean sameWorld = worldId.equals(from.getWorld().getUID());
+		int fx = from.getBlockX(), fy = from.getBlockY(), fz = from.getBlockZ();
+		int tx = to.getBlockX(), ty = to.getBlockY(), tz = to.getBlockZ();
+		for (VirtualWall wall : walls.values()) {
+			if (!wall.worldId.equals(worldId)) continue;
+			BlockBox region = wall.region;
+			boolean fromInside = sameWorld && region.contains(fx, fy, fz);
+			boolean toInside = region.contains(tx, ty, tz);
+			boolean blocked;
+			if (wall.arena.isPlayerInArena(player)) {
+				blocked = !toInside || (fromInside && !region.onShell(fx, fy, fz) && region.onShell(tx, ty, tz));
+			} else {
+				blocked = !fromInside && toInside;
+			}
+			if (blocked) return true;
+		}
+		return false;
+	}
+}
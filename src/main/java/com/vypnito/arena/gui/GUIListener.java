@@ -92,7 +92,11 @@ public class GUIListener implements Listener {
 				int requiredPlayers = 2; // Default if not passed through GUI flow
 
 				if (pos1 != null && pos2 != null) {
-					arenaManager.createArena(arenaName, pos1, pos2, requiredPlayers); // Passing default requiredPlayers
+					if (!arenaManager.createArena(arenaName, pos1, pos2, requiredPlayers)) { // Passing default requiredPlayers
+						player.sendMessage(Component.text("Arena '" + arenaName + "' could not be created, the name is invalid or already taken.", NamedTextColor.RED));
+						player.closeInventory();
+						return;
+					}
 					selectionManager.clearSelection(player);
 					player.sendMessage(Component.text("Arena '" + arenaName + "' created! Use '/arena edit " + arenaName + "' to configure.", NamedTextColor.AQUA));
 					player.closeInventory();
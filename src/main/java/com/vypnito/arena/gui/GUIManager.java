@@ -128,6 +128,7 @@ public class GUIManager implements Listener {
 		gui.setItem(20, createToggleItem(settings.isAllowBlockPlace(), "Block Placing"));
 		gui.setItem(21, createToggleItem(settings.isAllowItemDrop(), "Item Dropping"));
 		gui.setItem(22, createToggleItem(settings.isDisableHunger(), "Hunger Drain"));
+		gui.setItem(23, createToggleItem(settings.isVirtualWall(), "Virtual Wall"));
 
 		gui.setItem(28, createGuiItem(Material.DIAMOND_BLOCK, "§bSet Wall Material",
 				"§7Current: §e" + settings.getWallMaterial().name(),
@@ -239,7 +240,12 @@ public class GUIManager implements Listener {
 				Integer selectedRequiredPlayers = playerState.getSelectedRequiredPlayers();
 
 				if (pos1 != null && pos2 != null && selectedRequiredPlayers != null) {
-					arenaManager.createArena(arenaName, pos1, pos2, selectedRequiredPlayers);
+					if (!arenaManager.createArena(arenaName, pos1, pos2, selectedRequiredPlayers)) {
+						player.sendMessage(Component.text("Arena '" + arenaName + "' could not be created, the name is invalid or already taken.", NamedTextColor.RED));
+						playerManager.clearPlayerState(player);
+						player.closeInventory();
+						return;
+					}
 					selectionManager.clearSelection(player);
 					playerManager.clearPlayerState(player);
 					player.sendMessage(Component.text("Arena '" + arenaName + "' created! Use '/arena edit " + arenaName + "' to configure.", NamedTextColor.AQUA));
@@ -279,6 +285,7 @@ public class GUIManager implements Listener {
 					case 20 -> arena.getSettings().setAllowBlockPlace(!arena.getSettings().isAllowBlockPlace());
 					case 21 -> arena.getSettings().setAllowItemDrop(!arena.getSettings().isAllowItemDrop());
 					case 22 -> arena.getSettings().setDisableHunger(!arena.getSettings().isDisableHunger());
+					case 23 -> arena.getSettings().setVirtualWall(!arena.getSettings().isVirtualWall());
 				}
 				arenaManager.saveArena(arena);
 				openEditGUI(player, arena);
@@ -0,0 +1,25 @@
+package com.vypnito.arena.player;
+
+import org.bukkit.Material;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.UUID;
+
+/**
+ * An already parsed and validated chat input, handed from the async chat thread to the main thread.
+ * Every input carries the state it was typed for, so it is dropped if the player's state changed meanwhile.
+ */
+sealed interface ChatInput {
+	UUID playerId();
+	PlayerState state();
+
+	record Cancel(UUID playerId, PlayerState state) implements ChatInput {}
+
+	record WallMaterial(UUID playerId, PlayerState state, Material material) implements ChatInput {}
+
+	record Delay(UUID playerId, PlayerState state, int seconds) implements ChatInput {}
+
+	record RequiredPlayers(UUID playerId, PlayerState state, int team1, int team2) implements ChatInput {}
+
+	record AddEffect(UUID playerId, PlayerState state, PotionEffectType effectType, int amplifier) implements ChatInput {}
+}
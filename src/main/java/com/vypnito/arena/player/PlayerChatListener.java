@@ -1,5 +1,6 @@
 package com.vypnito.arena.player;
 
+import com.vypnito.arena.TaskScheduler;
 import com.vypnito.arena.arena;
 import com.vypnito.arena.arenas.Arenas;
 import com.vypnito.arena.arenas.ArenaManager;
@@ -11,11 +12,15 @@ import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.potion.PotionEffectType;
 
 import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -23,12 +28,17 @@ import java.util.stream.Collectors;
 /**
  * This listener catches chat input from players who are in an "input state"
  * (e.g., after clicking an item in the GUI that requires them to type something).
+ * The async chat thread only parses and validates the message; the resulting {@link ChatInput}
+ * is queued and applied on the main thread, which drains the queue once per tick.
+ * The listener is only registered while at least one player has a state.
  */
 public class PlayerChatListener implements Listener {
 	private final arena plugin;
 	private final PlayerManager playerManager;
 	private final ArenaManager arenaManager;
 	private final GUIManager guiManager;
+	private final Queue<ChatInput> inputs = new ConcurrentLinkedQueue<>(); // Filled by the chat threads, drained by the main thread
+	private TaskScheduler.Task drainTask; // Runs while the listener is registered
 
 	private static final Pattern X_V_X_PATTERN = Pattern.compile("(\\d+)v(\\d+)", Pattern.CASE_INSENSITIVE);
 
@@ -39,6 +49,22 @@ public class PlayerChatListener implements Listener {
 		this.guiManager = guiManager;
 	}
 
+	/**
+	 * Registers the listener while input may be expected and unregisters it once no player has a state
+	 * and no input is waiting, so chat is not intercepted otherwise.
+	 */
+	public synchronized void updateRegistration() {
+		boolean needed = playerManager.hasPlayerStates() || !inputs.isEmpty();
+		if (needed && drainTask == null) {
+			Bukkit.getPluginManager().registerEvents(this, plugin);
+			drainTask = plugin.getTaskScheduler().runGlobalTimer(this::drain, 1L, 1L);
+		} else if (!needed && drainTask != null) {
+			HandlerList.unregisterAll(this);
+			drainTask.cancel();
+			drainTask = null;
+		}
+	}
+
 	@EventHandler
 	public void onPlayerChat(AsyncPlayerChatEvent event) {
 		Player player = event.getPlayer();
@@ -46,148 +72,203 @@ public class PlayerChatListener implements Listener {
 		if (state == null) return;
 
 		event.setCancelled(true);
-		String message = event.getMessage();
-		// Arena object might be null if we are in the arena creation flow
-		Arenas arena = state.getArena();
+		ChatInput input = parse(player, state, event.getMessage());
+		if (input != null) {
+			inputs.offer(input);
+		}
+	}
 
+	/**
+	 * A player leaving can no longer answer, so their state is dropped.
+	 * @param event The quit event.
+	 */
+	@EventHandler
+	public void onPlayerQuit(PlayerQuitEvent event) {
+		playerManager.clearPlayerState(event.getPlayer());
+	}
+
+	/**
+	 * Parses a chat message for the player's state. Runs on the async chat thread and must not touch arenas;
+	 * invalid input is answered right away.
+	 * @param player The player providing input.
+	 * @param state The player's state when the message was sent.
+	 * @param message The chat message.
+	 * @return The parsed input, or null if there is nothing to apply.
+	 */
+	private ChatInput parse(Player player, PlayerState state, String message) {
 		if (message.equalsIgnoreCase("cancel")) {
-			playerManager.clearPlayerState(player);
-			if (state.getArenaNameForCreation() != null) {
-				// If cancelling during creation, go back to type selection GUI
-				Bukkit.getScheduler().runTask(plugin, () -> guiManager.openArenaTypeSelectionGUI(player, state.getArenaNameForCreation()));
-			} else if (arena != null) {
-				// If cancelling during editing, go back to edit GUI
-				Bukkit.getScheduler().runTask(plugin, () -> guiManager.openEditGUI(player, arena));
-			} else {
-				player.sendMessage(Component.text("Action cancelled, but unable to return to previous GUI.", NamedTextColor.RED));
-			}
-			player.sendMessage(Component.text("Action cancelled.", NamedTextColor.RED));
-			return;
+			return new ChatInput.Cancel(player.getUniqueId(), state);
 		}
-
 		if (state.getInputType() != null) {
-			handleChatInput(player, arena, message, state);
+			return parseChatInput(player, message, state);
 		} else if (state.getEffectType() != null) {
-			handleAddEffect(player, arena, message, state.getEffectType());
+			return parseAddEffect(player, message, state);
 		}
+		return null;
 	}
 
 	/**
 	 * Handles general chat input for setting arena properties like wall material or delay.
 	 * Now also handles custom arena type input.
 	 * @param player The player providing input.
-	 * @param arena The arena being configured (can be null for creation flow).
 	 * @param message The chat message input by the player.
 	 * @param state The current PlayerState, contains input type and potential arena creation data.
+	 * @return The parsed input, or null if the message was invalid.
 	 */
-	private void handleChatInput(Player player, Arenas arena, String message, PlayerState state) {
-		// --- KLÍČOVÁ ZMĚNA ZDE ---
-		// Logika pro CUSTOM_REQUIRED_PLAYERS se nyní řeší odděleně a nevolá saveArena na konci.
-		if (state.getInputType() == PlayerState.InputType.CUSTOM_REQUIRED_PLAYERS) {
-			handleCustomRequiredPlayersInput(player, message, state);
-			return; // Důležité: Ukončíme metodu, aby se nevolala saveArena a openEditGUI
-		}
-		// --- KONEC KLÍČOVÉ ZMĚNY ---
-
-		// Zbytek logiky handleChatInput pro WALL_MATERIAL a DELAY
-		switch(state.getInputType()) {
+	private ChatInput parseChatInput(Player player, String message, PlayerState state) {
+		switch (state.getInputType()) {
+			case CUSTOM_REQUIRED_PLAYERS:
+				return parseCustomRequiredPlayers(player, message, state);
 			case WALL_MATERIAL:
 				try {
-					Material newMaterial = Material.valueOf(message.toUpperCase());
-					arena.getSettings().setWallMaterial(newMaterial);
-					player.sendMessage(Component.text("Wall material updated to " + newMaterial.name(), NamedTextColor.GREEN));
+					return new ChatInput.WallMaterial(player.getUniqueId(), state, Material.valueOf(message.toUpperCase()));
 				} catch (IllegalArgumentException e) {
 					player.sendMessage(Component.text("Invalid material name. Please try again.", NamedTextColor.RED));
-					return;
+					return null;
 				}
-				break;
 			case DELAY:
 				try {
 					int newDelay = Integer.parseInt(message);
 					if (newDelay < 0) {
 						player.sendMessage(Component.text("Delay cannot be negative. Please enter a positive number.", NamedTextColor.RED));
-						return;
-					} else {
-						arena.getSettings().setWallRemovalDelay(newDelay);
-						player.sendMessage(Component.text("Wall removal delay updated to " + newDelay + "s.", NamedTextColor.GREEN));
+						return null;
 					}
+					return new ChatInput.Delay(player.getUniqueId(), state, newDelay);
 				} catch (NumberFormatException e) {
 					player.sendMessage(Component.text("That is not a valid number. Please enter a number.", NamedTextColor.RED));
-					return;
+					return null;
 				}
-				break;
+			default:
+				return null;
 		}
-		// Tyto řádky se spustí POUZE pro WALL_MATERIAL a DELAY (kdy je 'arena' vždy platná)
-		arenaManager.saveArena(arena);
-		playerManager.clearPlayerState(player);
-		Bukkit.getScheduler().runTask(plugin, () -> guiManager.openEditGUI(player, arena));
 	}
 
 	/**
-	 * NEW: Handles input specifically for custom arena player counts (XvX format).
+	 * NEW: Parses input specifically for custom arena player counts (XvX format).
 	 * @param player The player providing input.
 	 * @param message The chat message (e.g., "5v5").
 	 * @param state The current PlayerState for arena creation.
+	 * @return The parsed input, or null if the message was invalid.
 	 */
-	private void handleCustomRequiredPlayersInput(Player player, String message, PlayerState state) {
+	private ChatInput parseCustomRequiredPlayers(Player player, String message, PlayerState state) {
 		Matcher matcher = X_V_X_PATTERN.matcher(message);
-		if (matcher.matches()) {
-			try {
-				int players1 = Integer.parseInt(matcher.group(1));
-				int players2 = Integer.parseInt(matcher.group(2));
-				int totalPlayers = players1 + players2;
-
-				if (players1 <= 0 || players2 <= 0) {
-					player.sendMessage(Component.text("Player counts must be positive. Example: '5v5'.", NamedTextColor.RED));
-					return;
-				}
-				if (totalPlayers > 64) { // Max 32v32 or reasonable limit
-					player.sendMessage(Component.text("Total players (" + totalPlayers + ") is too high. Max 32v32 (64 total).", NamedTextColor.RED));
-					return;
-				}
-
-				state.setSelectedRequiredPlayers(totalPlayers); // Store total players
-				// We DON'T clear the player state completely here, just reset input type
-				playerManager.clearPlayerState(player); // Clear current input state
-				playerManager.setPlayerState(player, state); // Re-set player state with updated requiredPlayers and arena creation flow info
-
-				player.sendMessage(Component.text("Arena type set to " + players1 + "v" + players2 + " (" + totalPlayers + " players).", NamedTextColor.GREEN));
+		if (!matcher.matches()) {
+			player.sendMessage(Component.text("Invalid format. Please use 'XvX' (e.g., '5v5').", NamedTextColor.RED));
+			return null;
+		}
+		try {
+			int players1 = Integer.parseInt(matcher.group(1));
+			int players2 = Integer.parseInt(matcher.group(2));
+			int totalPlayers = players1 + players2;
 
-				// Proceed to the next step of arena creation (Setup GUI) on the main thread
-				Bukkit.getScheduler().runTask(plugin, () -> guiManager.openSetupGUI(player, state.getArenaNameForCreation()));
-			} catch (NumberFormatException e) {
-				player.sendMessage(Component.text("Invalid numbers in XvX format. Example: '5v5'.", NamedTextColor.RED));
+			if (players1 <= 0 || players2 <= 0) {
+				player.sendMessage(Component.text("Player counts must be positive. Example: '5v5'.", NamedTextColor.RED));
+				return null;
 			}
-		} else {
-			player.sendMessage(Component.text("Invalid format. Please use 'XvX' (e.g., '5v5').", NamedTextColor.RED));
+			if (totalPlayers > 64) { // Max 32v32 or reasonable limit
+				player.sendMessage(Component.text("Total players (" + totalPlayers + ") is too high. Max 32v32 (64 total).", NamedTextColor.RED));
+				return null;
+			}
+			return new ChatInput.RequiredPlayers(player.getUniqueId(), state, players1, players2);
+		} catch (NumberFormatException e) {
+			player.sendMessage(Component.text("Invalid numbers in XvX format. Example: '5v5'.", NamedTextColor.RED));
+			return null;
 		}
 	}
 
-
-	private void handleAddEffect(Player player, Arenas arena, String message, PotionEffectType effectType) {
+	private ChatInput parseAddEffect(Player player, String message, PlayerState state) {
 		try {
 			int amplifier = Integer.parseInt(message);
 			if (amplifier < 0 || amplifier > 255) {
 				player.sendMessage(Component.text("Amplifier must be between 0 and 255. Please try again.", NamedTextColor.RED));
-				return;
+				return null;
+			}
+			return new ChatInput.AddEffect(player.getUniqueId(), state, state.getEffectType(), amplifier);
+		} catch (NumberFormatException e) {
+			player.sendMessage(Component.text("That is not a valid number. Please enter a number.", NamedTextColor.RED));
+			return null;
+		}
+	}
+
+	/**
+	 * Applies all queued inputs. Runs on the main thread once per tick.
+	 */
+	private void drain() {
+		ChatInput input;
+		while ((input = inputs.poll()) != null) {
+			Player player = Bukkit.getPlayer(input.playerId());
+			// The player left, cancelled in a GUI or started another edit since typing
+			if (player == null || playerManager.getPlayerState(player) != input.state()) continue;
+			apply(player, input);
+		}
+		updateRegistration();
+	}
+
+	private void apply(Player player, ChatInput input) {
+		PlayerState state = input.state();
+		// Arena object might be null if we are in the arena creation flow
+		Arenas arena = state.getArena();
+		switch (input) {
+			case ChatInput.Cancel cancel -> {
+				playerManager.clearPlayerState(player);
+				if (state.getArenaNameForCreation() != null) {
+					// If cancelling during creation, go back to type selection GUI
+					plugin.getTaskScheduler().runForEntity(player, () -> guiManager.openArenaTypeSelectionGUI(player, state.getArenaNameForCreation()));
+				} else if (arena != null) {
+					// If cancelling during editing, go back to edit GUI
+					plugin.getTaskScheduler().runForEntity(player, () -> guiManager.openEditGUI(player, arena));
+				} else {
+					player.sendMessage(Component.text("Action cancelled, but unable to return to previous GUI.", NamedTextColor.RED));
+				}
+				player.sendMessage(Component.text("Action cancelled.", NamedTextColor.RED));
 			}
+			case ChatInput.WallMaterial wallMaterial -> {
+				arena.getSettings().setWallMaterial(wallMaterial.material());
+				player.sendMessage(Component.text("Wall material updated to " + wallMaterial.material().name(), NamedTextColor.GREEN));
+				finishEdit(player, arena);
+			}
+			case ChatInput.Delay delay -> {
+				arena.getSettings().setWallRemovalDelay(delay.seconds());
+				player.sendMessage(Component.text("Wall removal delay updated to " + delay.seconds() + "s.", NamedTextColor.GREEN));
+				finishEdit(player, arena);
+			}
+			case ChatInput.RequiredPlayers requiredPlayers -> {
+				int totalPlayers = requiredPlayers.team1() + requiredPlayers.team2();
+				state.setSelectedRequiredPlayers(totalPlayers); // Store total players
+				// We DON'T clear the player state completely here, just reset input type
+				playerManager.clearPlayerState(player); // Clear current input state
+				playerManager.setPlayerState(player, state); // Re-set player state with updated requiredPlayers and arena creation flow info
 
-			String effectString = effectType.getName() + ":" + amplifier;
-			arena.getSettings().addEffect(effectString);
-			arenaManager.saveArena(arena);
+				player.sendMessage(Component.text("Arena type set to " + requiredPlayers.team1() + "v" + requiredPlayers.team2() + " (" + totalPlayers + " players).", NamedTextColor.GREEN));
 
-			player.sendMessage(Component.text("Effect '" + formatEffectName(effectType.getName()) + " " + (amplifier + 1) + "' added!", NamedTextColor.GREEN));
-			playerManager.clearPlayerState(player);
+				// Proceed to the next step of arena creation (Setup GUI)
+				plugin.getTaskScheduler().runForEntity(player, () -> guiManager.openSetupGUI(player, state.getArenaNameForCreation()));
+			}
+			case ChatInput.AddEffect addEffect -> {
+				String effectName = addEffect.effectType().getName();
+				arena.getSettings().addEffect(effectName + ":" + addEffect.amplifier());
+				arenaManager.saveArena(arena);
 
-			Bukkit.getScheduler().runTask(plugin, () -> guiManager.openEffectsGUI(player, arena, 0));
-		} catch (NumberFormatException e) {
-			player.sendMessage(Component.text("That is not a valid number. Please enter a number.", NamedTextColor.RED));
+				player.sendMessage(Component.text("Effect '" + formatEffectName(effectName) + " " + (addEffect.amplifier() + 1) + "' added!", NamedTextColor.GREEN));
+				playerManager.clearPlayerState(player);
+
+				plugin.getTaskScheduler().runForEntity(player, () -> guiManager.openEffectsGUI(player, arena, 0));
+			}
 		}
 	}
 
+	/**
+	 * Saves an edited arena and returns the player to the edit GUI.
+	 */
+	private void finishEdit(Player player, Arenas arena) {
+		arenaManager.saveArena(arena);
+		playerManager.clearPlayerState(player);
+		plugin.getTaskScheduler().runForEntity(player, () -> guiManager.openEditGUI(player, arena));
+	}
+
 	private String formatEffectName(String name) {
 		return Arrays.stream(name.split("_"))
 				.map(w -> w.substring(0, 1).toUpperCase() + w.substring(1).toLowerCase())
 				.collect(Collectors.joining(" "));
 	}
-}
\ No newline at end of file
+}
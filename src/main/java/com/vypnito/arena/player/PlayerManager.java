@@ -1,15 +1,25 @@
 package com.vypnito.arena.player;
 
 import org.bukkit.entity.Player;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages the transient state of players, such as what they are currently editing in a GUI.
+ * States are read from the async chat thread, so the map is concurrent; they are only changed on the main thread.
  */
 public class PlayerManager {
-	private final Map<UUID, PlayerState> playerStates = new HashMap<>();
+	private final Map<UUID, PlayerState> playerStates = new ConcurrentHashMap<>();
+	private Runnable stateListener; // Notified after every change, e.g. to (un)register the chat listener
+
+	/**
+	 * Sets a callback run on the main thread after a state was set or cleared.
+	 * @param stateListener The callback.
+	 */
+	public void setStateListener(Runnable stateListener) {
+		this.stateListener = stateListener;
+	}
 
 	/**
 	 * Sets a specific state for a player, usually indicating they are waiting for input.
@@ -18,6 +28,7 @@ public class PlayerManager {
 	 */
 	public void setPlayerState(Player player, PlayerState state) {
 		playerStates.put(player.getUniqueId(), state);
+		fireStateChanged();
 	}
 
 	/**
@@ -29,11 +40,27 @@ public class PlayerManager {
 		return playerStates.get(player.getUniqueId());
 	}
 
+	/**
+	 * Checks whether any player has a state, i.e. chat input may be expected.
+	 * @return True if at least one player has a state.
+	 */
+	public boolean hasPlayerStates() {
+		return !playerStates.isEmpty();
+	}
+
 	/**
 	 * Clears the state of a player, usually after they have provided input or cancelled an action.
 	 * @param player The player whose state to clear.
 	 */
 	public void clearPlayerState(Player player) {
-		playerStates.remove(player.getUniqueId());
+		if (playerStates.remove(player.getUniqueId()) != null) {
+			fireStateChanged();
+		}
+	}
+
+	private void fireStateChanged() {
+		if (stateListener != null) {
+			stateListener.run();
+		}
 	}
-}
\ No newline at end of file
+}